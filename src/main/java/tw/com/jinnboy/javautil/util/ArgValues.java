@@ -0,0 +1,61 @@
+package tw.com.jinnboy.javautil.util;
+
+import java.util.Arrays;
+
+/**
+ * 同一個argName輸入的所有值，例如「-param a -param b」會得到[a, b]。
+ *
+ * 建立後不會改變，新增時回傳新的ArgValues，可以直接在多個執行緒共用，不需要每次讀取時判斷是String還是List。
+ *
+ * @author 阿昌
+ */
+public final class ArgValues {
+	private final String[] values;
+	private final String first;
+
+	private ArgValues(String[] values) {
+		this.values = values;
+		String value = values[0];
+		for (String s : values) {
+			if (Strings.notEmpty(s)) {
+				value = s;
+				break;
+			}
+		}
+		this.first = value;
+	}
+
+	public static ArgValues of(String value) {
+		return new ArgValues(new String[] { value });
+	}
+
+	public ArgValues add(String value) {
+		String[] newValues = Arrays.copyOf(values, values.length + 1);
+		newValues[values.length] = value;
+		return new ArgValues(newValues);
+	}
+
+	/**
+	 * 第一個不是空字串的值，都是空字串時回傳第一個值。
+	 */
+	public String first() {
+		return first;
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	public String get(int index) {
+		return values[index];
+	}
+
+	public String[] toArray() {
+		return values.clone();
+	}
+
+	@Override
+	public String toString() {
+		return values.length == 1 ? values[0] : Arrays.toString(values);
+	}
+}
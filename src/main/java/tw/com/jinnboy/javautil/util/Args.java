@@ -1,17 +1,46 @@
 package tw.com.jinnboy.javautil.util;
 
-import java.util.ArrayList;
-import java.util.Hashtable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import tw.com.jinnboy.javautil.util.autobind.ArgSchema;
+import tw.com.jinnboy.javautil.util.autobind.BindException;
 import tw.com.jinnboy.javautil.util.autobind.ParamGetter;
 import tw.com.jinnboy.javautil.util.autobind.Reflect;
+import tw.com.jinnboy.javautil.util.config.ConfigHandle;
+import tw.com.jinnboy.javautil.util.config.ConfigView;
 
 /**
  * 使用方式： 在程式main函式一開始執行Args.load(args)。
  * 
  * 執行Args.get(argName,defaultValue)，來取得參數。
- * Args.get取值順序：優先取runtimeArg，其次找使用者輸入的命令列參數，再檢查Config是否有設定，若都沒設定
- * 最後才用defaultValue。
+ * Args.get取值順序：
+ * 1.runtimeArg
+ * 2.使用者輸入的命令列參數
+ * 3.環境變數，名稱為JAVAUTIL_加上argName(或全部大寫的argName)，例如JAVAUTIL_output或JAVAUTIL_OUTPUT
+ * 4.Config的profile section，例如[CategoryA.PROD]
+ * 5.Config的category section
+ * 6.Config的global section
+ * 若都沒設定最後才用defaultValue。
+ * 
+ * 查到的結果會暫存起來，之後直接回傳。setRuntimeArg()、addArg()只清掉該argName的暫存，
+ * Config重新載入或切換category、environment時Config.getView()會換成新的ConfigView，暫存也跟著整個換新。
+ * 環境變數在程式執行期間不會改變，不需要清除。加上JAVAUTIL_前綴，USER、HOME、PATH這類常見的環境變數不會蓋掉同名的cfg設定。
+ * getInt()、getLong()、getBoolean()、getDuration()轉好的型別也跟著暫存，之後不用再解析字串。
+ * 
+ * 命令列參數放在ConcurrentHashMap，同一個argName的多個值存成ArgValues。
+ * runtimeArg每次修改時複製一份新的Map再換掉(copy-on-write)，讀取時不需要lock，不會和Batch設定runtimeArg的執行緒互搶。
+ * 
+ * 多個Task同時執行時，用Args.runTask(args, runnable)給每個Task自己的runtimeArg，優先於全域的runtimeArg。
+ * runtimeArg只屬於執行runTask()的執行緒，不會自動繼承：Task裡另外建立執行緒或交給thread pool執行時，先用Args.wrap()包起來。
+ * 不自動繼承是因為thread pool(例如parallel stream用的ForkJoinPool.commonPool())可能在某個Task裡才建立執行緒，
+ * 繼承的話這些執行緒之後處理其他工作時也會一直看到該Task的runtimeArg。
  * 
  * argName不區分大小寫。
  * 
@@ -19,8 +48,22 @@ import tw.com.jinnboy.javautil.util.autobind.Reflect;
  *
  */
 public class Args {
-	private static Hashtable<String, Object> table = new Hashtable<>(); // 使用者輸入的命令列參數
-	private static Hashtable<String, Object> runtimeTable = new Hashtable<>(); // runtimeArg
+	private static final ConcurrentHashMap<String, ArgValues> table = new ConcurrentHashMap<>(); // 使用者輸入的命令列參數
+	private static volatile Map<String, String> runtimeArgs = Collections.emptyMap(); // runtimeArg，修改時整個換掉
+	private static final Object runtimeLock = new Object();
+	private static final char SEPARATOR = '\0'; // 多個argNames的暫存key
+	private static final String ENV_PREFIX = "JAVAUTIL_"; // 環境變數的前綴
+	private static final AtomicLong changes = new AtomicLong(); // runtimeArg或命令列參數改變的次數
+	private static volatile Memo memo = new Memo(null);
+	// 目前Task的runtimeArg，其他執行緒要用wrap()帶過去
+	private static final ThreadLocal<TaskArgs> taskArgs = new ThreadLocal<>();
+
+	// 暫存的型別
+	private static final int INT = 0;
+	private static final int LONG = 1;
+	private static final int BOOLEAN = 2;
+	private static final int DURATION = 3;
+	private static final Object INVALID = new Object(); // 空字串或格式錯誤
 
 	private Args() {
 	}
@@ -65,55 +108,147 @@ public class Args {
 		}
 	}
 
+	/**
+	 * 依target類別上的@AutoBind解析args並填入target，參數錯誤時一次列出所有錯誤。
+	 *
+	 * @throws BindException 缺少必填參數、格式錯誤或參數沒有接值
+	 * @see ArgSchema
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T load(String[] args, T target) {
+		return ArgSchema.of((Class<T>) target.getClass()).parse(args, target);
+	}
+
 	public static void addArg(String argName, String argValue) {
-		Object preValue = table.get(argValue);
-		if (preValue == null) {
-			table.put(argName, argValue);
-		} else if (preValue instanceof ArrayList) {
-			@SuppressWarnings("unchecked")
-			ArrayList<String> list = (ArrayList<String>) preValue;
-			list.add(argValue);
-		} else {
-			ArrayList<String> list = new ArrayList<>(4);
-			list.add(preValue.toString());
-			list.add(argValue);
-			table.put(argName, list);
+		ArgValues current = table.get(argName);
+		while (true) {
+			if (current == null) {
+				current = table.putIfAbsent(argName, ArgValues.of(argValue));
+				if (current == null) {
+					break;
+				}
+			} else if (table.replace(argName, current, current.add(argValue))) {
+				break;
+			} else {
+				current = table.get(argName);
+			}
 		}
+		forget(argName);
 	}
 
 	// 主要由Batch呼叫使用，處理多個Task使用共同變數的問題。
 	// 舉例來說，Task的output都是用Args.get來取得的話，當有多個Task時會有問題，這時可以由Batch依不同時間點設定各Task執行時取得變數的值。
+	// 多個Task同時執行時請改用runTask()。
 	public static void setRuntimeArg(String argName, String argValue) {
-		runtimeTable.put(argName, argValue);
+		synchronized (runtimeLock) {
+			Map<String, String> copy = new HashMap<>(runtimeArgs);
+			if (argValue == null) {
+				copy.remove(argName);
+			} else {
+				copy.put(argName, argValue);
+			}
+			runtimeArgs = Collections.unmodifiableMap(copy);
+		}
+		forget(argName);
 	}
 
 	public static void removeRuntimeArg(String argName) {
-		runtimeTable.remove(argName);
+		setRuntimeArg(argName, null);
 	}
 
 	public static void clearRuntimeArgs() {
-		runtimeTable.clear();
+		synchronized (runtimeLock) {
+			runtimeArgs = Collections.emptyMap();
+		}
+		changes.incrementAndGet();
+		memo.values.clear();
 	}
 
-	// 取得第一個arg，不去檢查Config
-	public static String getArg(String argName) {
-		Object obj = runtimeTable.get(argName);
-		if (obj == null) {
-			obj = table.get(argName);
-		}
-		String value = null;
-		if (obj == null) {
-		} else if (obj instanceof ArrayList) {
-			@SuppressWarnings("unchecked")
-			ArrayList<String> list = (ArrayList<String>) obj;
-			for (String s : list) {
-				if (Strings.notEmpty(s)) {
-					value = s;
-					break;
+	/**
+	 * 在runtimeArgs下執行runnable，期間目前執行緒用Args取值時，先看runtimeArgs，結束後恢復原本的設定。
+	 * 巢狀呼叫時外層的值會保留，相同的argName以內層為準。
+	 */
+	public static void runTask(Map<String, String> runtimeArgs, Runnable runnable) {
+		TaskArgs previous = taskArgs.get();
+		taskArgs.set(new TaskArgs(previous, runtimeArgs));
+		try {
+			runnable.run();
+		} finally {
+			restore(previous);
+		}
+	}
+
+	public static <T> T callTask(Map<String, String> runtimeArgs, Callable<T> callable) throws Exception {
+		TaskArgs previous = taskArgs.get();
+		taskArgs.set(new TaskArgs(previous, runtimeArgs));
+		try {
+			return callable.call();
+		} finally {
+			restore(previous);
+		}
+	}
+
+	/**
+	 * 把目前Task的runtimeArg帶到runnable裡，交給thread pool或Task裡建立的執行緒時使用。
+	 */
+	public static Runnable wrap(final Runnable runnable) {
+		final TaskArgs task = taskArgs.get();
+		if (task == null) {
+			return runnable;
+		}
+		return new Runnable() {
+			@Override
+			public void run() {
+				TaskArgs previous = taskArgs.get();
+				taskArgs.set(task);
+				try {
+					runnable.run();
+				} finally {
+					restore(previous);
 				}
 			}
+		};
+	}
+
+	/**
+	 * 目前Task的runtimeArg，不在Task裡時回傳空的Map。
+	 */
+	public static Map<String, String> getTaskArgs() {
+		TaskArgs task = taskArgs.get();
+		return task == null ? Collections.<String, String>emptyMap() : task.values;
+	}
+
+	private static void restore(TaskArgs previous) {
+		if (previous == null) {
+			taskArgs.remove();
 		} else {
-			value = obj.toString();
+			taskArgs.set(previous);
+		}
+	}
+
+	// 清掉包含argName的暫存，其他argName的暫存保留。多個argNames的暫存key由Memo.keys查出，不必掃過全部的暫存。
+	private static void forget(String argName) {
+		changes.incrementAndGet();
+		Memo current = memo;
+		current.values.remove(argName);
+		Set<String> keys = current.keys.get(argName);
+		if (keys != null) {
+			for (String key : keys) {
+				current.values.remove(key);
+			}
+		}
+	}
+
+	// 取得第一個arg，不去檢查Config
+	public static String getArg(String argName) {
+		TaskArgs task = taskArgs.get();
+		String value = task == null ? null : task.values.get(argName);
+		if (value == null) {
+			value = runtimeArgs.get(argName);
+		}
+		if (value == null) {
+			ArgValues values = table.get(argName);
+			value = values == null ? null : values.first();
 		}
 		return value;
 	}
@@ -126,7 +261,65 @@ public class Args {
 	// 取得第一個arg，其次取Config，都找不到再取defaultValue。
 	public static String get(String argName, String defaultValue) {
 		String argValue = getByNames(true, argName);
-		return Strings.isEmpty(argValue) ? "" : defaultValue;
+		return Strings.isEmpty(argValue) ? defaultValue : argValue;
+	}
+
+	public static int getInt(String argName, int defaultValue) {
+		Object value = getTyped(argName, INT);
+		return value == INVALID ? defaultValue : (Integer) value;
+	}
+
+	public static long getLong(String argName, long defaultValue) {
+		Object value = getTyped(argName, LONG);
+		return value == INVALID ? defaultValue : (Long) value;
+	}
+
+	/**
+	 * 1、true、y、yes、on(不分大小寫)為true，其他為false，沒有設定時回傳defaultValue。
+	 */
+	public static boolean getBoolean(String argName, boolean defaultValue) {
+		Object value = getTyped(argName, BOOLEAN);
+		return value == INVALID ? defaultValue : (Boolean) value;
+	}
+
+	/**
+	 * 可以寫成500ms、30s、5m、2h、1d或ISO-8601的PT30S，沒有單位時視為毫秒。
+	 */
+	public static Duration getDuration(String argName, Duration defaultValue) {
+		Object value = getTyped(argName, DURATION);
+		return value == INVALID ? defaultValue : (Duration) value;
+	}
+
+	// 第一次取得某個型別時才解析，結果放在Resolved裡，和字串一起被清除。
+	private static Object getTyped(String argName, int type) {
+		Resolved resolved = resolve(argName);
+		Object value = resolved.typed[type];
+		if (value == null) {
+			value = parse(argName, resolved.value.trim(), type);
+			resolved.typed[type] = value;
+		}
+		return value;
+	}
+
+	private static Object parse(String argName, String value, int type) {
+		if (value.isEmpty()) {
+			return INVALID;
+		}
+		try {
+			switch (type) {
+			case INT:
+				return Integer.valueOf(value);
+			case LONG:
+				return Long.valueOf(value);
+			case BOOLEAN:
+				return ConfigHandle.parseBoolean(value);
+			default:
+				return ConfigHandle.parseDuration(value);
+			}
+		} catch (RuntimeException e) {
+			System.out.println(String.format("Args.get(%s) has error: %s", argName, e));
+			return INVALID;
+		}
 	}
 
 	// 當有一個變數有縮寫，有不同argNames時，例如「-o、-output」和「-d、-DATA_DATE」，可以用此函式同時檢查和取得結果。
@@ -134,43 +327,96 @@ public class Args {
 		return getByNames(true, argNames);
 	}
 
-	// findConfig=true時，當沒輸入arg，會去查找Config有沒有設定，都找不到的話會返回空字串。
+	// findConfig=true時，當沒輸入arg，會去查找環境變數和Config有沒有設定，都找不到的話會返回空字串。
 	public static String getByNames(boolean findConfig, String... argNames) {
-		Object obj;
+		if (!findConfig) {
+			return find(null, argNames);
+		}
+		return resolve(argNames).value;
+	}
+
+	private static Resolved resolve(String... argNames) {
+		TaskArgs task = taskArgs.get();
+		if (task != null) {
+			Resolved resolved = task.resolve(argNames);
+			if (resolved != null) {
+				return resolved;
+			}
+		}
+		ConfigView view = Config.getView();
+		Memo current = memo;
+		if (current.view != view) {
+			current = new Memo(view);
+			memo = current;
+		}
+		String key = argNames.length == 1 ? argNames[0] : join(argNames);
+		Resolved resolved = current.values.get(key);
+		if (resolved == null) {
+			if (argNames.length > 1) {
+				current.index(argNames, key);
+			}
+			long version = changes.get();
+			resolved = new Resolved(find(view, argNames));
+			current.values.put(key, resolved);
+			if (changes.get() != version) {
+				current.values.remove(key, resolved); // 查詢期間有setRuntimeArg()或addArg()，結果可能已經過時
+			}
+		}
+		return resolved;
+	}
+
+	private static String join(String... argNames) {
+		StringBuilder sb = new StringBuilder();
+		for (String argName : argNames) {
+			if (sb.length() > 0) {
+				sb.append(SEPARATOR);
+			}
+			sb.append(argName);
+		}
+		return sb.toString();
+	}
+
+	// view為null時不查環境變數和Config。
+	private static String find(ConfigView view, String... argNames) {
 		String argValue = null;
+		TaskArgs task = taskArgs.get();
+		if (task != null) {
+			for (String argName : argNames) {
+				argValue = task.values.get(argName);
+				if (Strings.notEmpty(argValue)) {
+					return argValue;
+				}
+			}
+		}
+		Map<String, String> runtime = runtimeArgs;
 		for (String argName : argNames) {
-			obj = runtimeTable.get(argName);
-			if (obj != null) {
-				argValue = obj.toString();
+			argValue = runtime.get(argName);
+			if (argValue != null) {
 				break;
 			}
 		}
 		if (Strings.isEmpty(argValue)) {
 			for (String argName : argNames) {
-				obj = table.get(argName);
-				if (obj == null) {
-					continue;
-				} else if (obj instanceof ArrayList) {
-					@SuppressWarnings("unchecked")
-					ArrayList<String> list = (ArrayList<String>) obj;
-					for (String s : list) {
-						if (Strings.notEmpty(s)) {
-							argValue = s;
-							break;
-						}
-					}
+				ArgValues values = table.get(argName);
+				if (values != null) {
+					argValue = values.first();
 					if (Strings.notEmpty(argValue)) {
 						break;
 					}
-				} else {
-					argValue = obj.toString();
+				}
+			}
+		}
+		if (view != null && Strings.isEmpty(argValue)) {
+			for (String argName : argNames) {
+				argValue = getEnv(argName);
+				if (Strings.notEmpty(argValue)) {
 					break;
 				}
 			}
 		}
-		if (findConfig && Strings.isEmpty(argValue)) {
+		if (view != null && Strings.isEmpty(argValue)) {
 			for (String argName : argNames) {
-				argValue = Config.get(argName);
+				argValue = view.get(argName, "");
 				if (Strings.notEmpty(argValue)) {
 					break;
 				}
@@ -179,24 +425,38 @@ public class Args {
 		return Strings.isEmpty(argValue) ? "" : argValue;
 	}
 
+	// 環境變數名稱通常是大寫，照原本的寫法找不到時再找全部大寫的名稱
+	private static String getEnv(String argName) {
+		String value = System.getenv(ENV_PREFIX + argName);
+		return value != null ? value : System.getenv(ENV_PREFIX + argName.toUpperCase());
+	}
+
 	// 如果有多個相同的args，如同時輸入多個-param，可以用函式取得。
 	// 此函式只會檢查args，不會檢查Config。
 	public static String[] getArgs(String argName) {
-		Object value = runtimeTable.get(argName);
-		if (value == null) {
-			value = table.get(argName);
+		TaskArgs task = taskArgs.get();
+		String runtimeValue = task == null ? null : task.values.get(argName);
+		if (runtimeValue == null) {
+			runtimeValue = runtimeArgs.get(argName);
 		}
-		if (value == null) {
+		if (runtimeValue != null) {
+			return runtimeValue.length() == 0 ? new String[0] : new String[] { runtimeValue };
+		}
+		ArgValues values = table.get(argName);
+		if (values == null) {
 			String configValue = Config.get(argName);
 			return Strings.isEmpty(configValue) ? new String[0] : new String[] { configValue };
-		} else if (value instanceof ArrayList) {
-			@SuppressWarnings("unchecked")
-			ArrayList<String> list = (ArrayList<String>) value;
-			return list.toArray(new String[list.size()]);
-		} else {
-			String str = value.toString();
-			return str.length() == 0 ? new String[0] : new String[] { value.toString() };
+		} else if (values.size() == 1 && values.get(0).length() == 0) {
+			return new String[0];
 		}
+		return values.toArray();
+	}
+
+	/**
+	 * 取得命令列輸入的所有值，沒有輸入時回傳null。
+	 */
+	public static ArgValues getValues(String argName) {
+		return table.get(argName);
 	}
 
 	public static void autoBind(Object obj) {
@@ -209,4 +469,71 @@ public class Args {
 		Reflect.autoBind(paramGetter, obj);
 	}
 
+	// 查詢的結果和轉好型別的值，argName改變時整個丟掉。
+	private static class Resolved {
+		private final String value;
+		private final Object[] typed = new Object[4]; // 依INT、LONG、BOOLEAN、DURATION，null表示還沒解析
+
+		Resolved(String value) {
+			this.value = value;
+		}
+	}
+
+	// 某個Task的runtimeArg，建立後不會改變，查到的結果直接暫存，不需要清除。
+	private static class TaskArgs {
+		private final Map<String, String> values;
+		private final ConcurrentHashMap<String, Resolved> resolved = new ConcurrentHashMap<>();
+
+		TaskArgs(TaskArgs parent, Map<String, String> runtimeArgs) {
+			Map<String, String> merged = parent == null ? new HashMap<String, String>()
+					: new HashMap<>(parent.values);
+			merged.putAll(runtimeArgs);
+			this.values = Collections.unmodifiableMap(merged);
+		}
+
+		// 任何一個argName有設定時回傳結果，都沒有設定時回傳null，繼續查全域的設定。
+		Resolved resolve(String... argNames) {
+			for (String argName : argNames) {
+				String value = values.get(argName);
+				if (Strings.notEmpty(value)) {
+					Resolved result = resolved.get(argName);
+					if (result == null) {
+						result = new Resolved(value);
+						Resolved previous = resolved.putIfAbsent(argName, result);
+						if (previous != null) {
+							result = previous;
+						}
+					}
+					return result;
+				}
+			}
+			return null;
+		}
+	}
+
+	// 某個ConfigView下的查詢結果，ConfigView換掉時整個換新。
+	private static class Memo {
+		private final ConfigView view;
+		private final ConcurrentHashMap<String, Resolved> values = new ConcurrentHashMap<>();
+		// argName對應到包含它的多個argNames暫存key，forget()時使用
+		private final ConcurrentHashMap<String, Set<String>> keys = new ConcurrentHashMap<>();
+
+		Memo(ConfigView view) {
+			this.view = view;
+		}
+
+		void index(String[] argNames, String key) {
+			for (String argName : argNames) {
+				Set<String> set = keys.get(argName);
+				if (set == null) {
+					set = ConcurrentHashMap.newKeySet();
+					Set<String> previous = keys.putIfAbsent(argName, set);
+					if (previous != null) {
+						set = previous;
+					}
+				}
+				set.add(key);
+			}
+		}
+	}
 }
@@ -1,16 +1,22 @@
 package tw.com.jinnboy.javautil.util;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Hashtable;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import tw.com.jinnboy.javautil.util.config.ConfigCache;
+import tw.com.jinnboy.javautil.util.config.ConfigListener;
+import tw.com.jinnboy.javautil.util.config.ConfigParser;
+import tw.com.jinnboy.javautil.util.config.ConfigSnapshot;
+import tw.com.jinnboy.javautil.util.config.ConfigView;
+import tw.com.jinnboy.javautil.util.config.ConfigWatcher;
 
 /**
  * 使用方式：
@@ -41,17 +47,34 @@ import java.util.List;
  * 設定Config.setCategory("CategoryA")後，呼叫Config.get("param1")會得到aaa。
  * 設定Config.setCategory("CategoryB")後，呼叫Config.get("param1")會得到bbb。
  * 
+ * 只在某個環境使用的值可以放在[Category.環境]的section，例如[CategoryA.PROD]，
+ * 在Config.getEnvironment()為PROD時會蓋過[CategoryA]的設定。
+ * 
+ * 值裡可以用${param}參照其他param，例如output=${folder}/output.csv，依目前的category取得folder的值。
+ * 值裡有日期符號時可以用Config.expand(param)，例如output_yyyyMMdd.csv會換成今天的日期。
+ * 
  * 不是等號格式(param=value)的文字會統一存成list，
  * 例如在設定CategoryA後，呼叫Config.getOtherLines()可以取得有字串「This is apple blabla...」的list。
  * 
+ * cfg檔由ConfigParser解析：mmap讀入後直接在bytes上解析，大檔案依section平行處理，值等到第一次讀取才解碼成String。
+ * 解析後在cfg檔旁邊寫出binary快取(檔名加上.bin)，之後cfg檔的大小、修改時間和CRC32都沒變時直接mmap快取，
+ * 不再重新解析，請見ConfigCache。不想寫出快取時，在載入前呼叫Config.setUseCache(false)。
+ * 載入的內容存成不會改變的ConfigSnapshot，重新載入時先在旁邊建好新的一份再一次換掉，
+ * 讀取時不需要lock，也不會看到載入到一半的內容。
+ * 目前category看到的設定(global加上category section)在設定category或載入時就合併成ConfigView，
+ * Config.get()只查一次HashMap，不需要組字串。經常讀取的數字、開關或時間可以用ConfigHandle暫存轉好型別的值。
+ * 
  * @author 阿昌
  *
  */
 public class Config {
-	private static Hashtable<String, Object> table;
-	private static Hashtable<String, Boolean> categories;
+	private static volatile ConfigSnapshot snapshot;
+	private static volatile ConfigView view; // 目前category的ConfigView，category或snapshot改變時清掉
 	private static String category;
-	private static String environment; // environment
+	private static final List<ConfigListener> listeners = new CopyOnWriteArrayList<>();
+	private static ConfigWatcher watcher;
+	private static volatile String environment; // environment
+	private static volatile boolean useCache = true;
 
 	private Config() {
 	}
@@ -61,14 +84,122 @@ public class Config {
 	}
 
 	public static void setCategory(String category) {
-		Config.category = category;
+		synchronized (Config.class) {
+			Config.category = category;
+			view = null;
+		}
 	}
 
-	public static boolean containCategory(String category) {
-		if (categories == null) {
-			load();
+	/**
+	 * 取得目前category合併好global後的設定。
+	 */
+	public static ConfigView getView() {
+		ConfigView current = view;
+		if (current == null) {
+			ConfigSnapshot currentSnapshot = getSnapshot();
+			String profile = getEnvironment();
+			synchronized (Config.class) {
+				if (view == null && snapshot == currentSnapshot && profile.equals(environment)) {
+					view = currentSnapshot.view(category, profile);
+				}
+				current = view;
+			}
+			if (current == null) {
+				current = getView(); // 剛好重新載入，再取一次
+			}
+		}
+		return current;
+	}
+
+	private static void publish(ConfigSnapshot newSnapshot) {
+		ConfigSnapshot oldSnapshot;
+		synchronized (Config.class) {
+			oldSnapshot = snapshot;
+			snapshot = newSnapshot;
+			view = null;
+		}
+		if (oldSnapshot != null && !listeners.isEmpty()) {
+			Set<String> keys = ConfigSnapshot.diff(oldSnapshot, newSnapshot);
+			if (!keys.isEmpty()) {
+				for (ConfigListener listener : listeners) {
+					try {
+						listener.changed(keys);
+					} catch (RuntimeException e) {
+						System.out.println(String.format("Config listener(%s) has error: %s", listener, e));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 取得目前的設定內容，第一次呼叫時會自動載入cfg檔。
+	 */
+	public static ConfigSnapshot getSnapshot() {
+		ConfigSnapshot current = snapshot;
+		if (current == null) {
+			synchronized (Config.class) {
+				if (snapshot == null) {
+					load();
+					if ("1".equals(snapshot.view(null).get("ConfigWatch", "0"))) {
+						watch();
+					}
+				}
+				current = snapshot;
+			}
+		}
+		return current;
+	}
+
+	public static void addListener(ConfigListener listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeListener(ConfigListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 開始監看目前載入的cfg檔，修改後約500毫秒重新載入。沒有載入cfg檔時回傳false。
+	 */
+	public static boolean watch() {
+		return watch(500);
+	}
+
+	public static synchronized boolean watch(long debounceMillis) {
+		Path path = getSnapshot().getPath();
+		if (path == null) {
+			return false;
+		}
+		unwatch();
+		try {
+			watcher = new ConfigWatcher(path, debounceMillis);
+			return true;
+		} catch (IOException e) {
+			System.out.println(String.format("Config.watch(%s) has error: %s", path, e));
+			return false;
 		}
-		return categories != null && categories.get(category.toLowerCase()) != null;
+	}
+
+	public static synchronized void unwatch() {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+			}
+			watcher = null;
+		}
+	}
+
+	/**
+	 * 載入時是否使用並寫出binary快取，預設為true。
+	 */
+	public static void setUseCache(boolean useCache) {
+		Config.useCache = useCache;
+	}
+
+	public static boolean containCategory(String category) {
+		return category != null && category.length() > 0 && getSnapshot().containSection(category.toLowerCase());
 	}
 
 	private static String checkEnvironment() {
@@ -95,62 +226,70 @@ public class Config {
 	}
 
 	public static String getEnvironment() {
-		if (environment == null) {
-			environment = checkEnvironment();
+		String current = environment;
+		if (current == null) {
+			current = checkEnvironment();
+			synchronized (Config.class) {
+				if (environment == null) {
+					environment = current;
+				}
+				current = environment;
+			}
 		}
-		return environment;
+		return current;
 	}
 
+	/**
+	 * 指定環境，之後改用[Category.環境]的profile section。
+	 */
 	public static void setEnvironment(String environment) {
-		Config.environment = environment;
+		synchronized (Config.class) {
+			Config.environment = environment;
+			view = null;
+		}
 	}
 
 	// 直接用呼叫它的class名稱來當作section title
 	public static String get(String param) {
-		return getValue(category, param, "");
+		return getView().get(param, "");
 	}
 
 	// getOrDefault
 	public static String get(String param, String defaultValue) {
-		return getValue(category, param, defaultValue);
+		return getView().get(param, defaultValue);
 	}
 
 	// getOrThrow
 	public static String getOrThrow(String param) throws Exception {
-		String value = getValue(category, param, null);
+		String value = getView().get(param, null);
 		if (value != null) {
 			return value;
 		}
 		throw new Exception(String.format("Can not found '%s' in config.", param));
 	}
 
+	/**
+	 * 取得param的值，並把日期符號換成今天的日期，例如output_yyyyMMdd.csv會得到output_20200102.csv。
+	 * 日期符號請見Dates.replaceSymbol()，找不到param時回傳空字串。
+	 */
+	public static String expand(String param) {
+		return getView().expand(param, System.currentTimeMillis(), "");
+	}
+
+	public static String expand(String param, Date date) {
+		return getView().expand(param, date.getTime(), "");
+	}
+
 	public static String getValue(String category, String param, String defaultValue) {
-		if (table == null) {
-			load();
-		}
-		Object value;
-		// 先檢查有沒有category的param
-		if (category != null && category.length() > 0) {
-			value = table.get(category.toLowerCase() + '@' + param);
-			if (value != null) {
-				return value.toString();
-			}
-		}
-		value = table.get(param);// 最後才檢查有沒有global的param
-		return (null == value) ? defaultValue : value.toString();
+		return getSnapshot().view(category, getEnvironment()).get(param, defaultValue);
 	}
 
 	public static List<String> getOtherLines() {
 		return getOtherLines(category);
 	}
 
-	@SuppressWarnings("unchecked")
 	public static List<String> getOtherLines(String category) {
-		if (category != null && category.length() > 0) {
-			category = category.toLowerCase() + '@';
-		}
-		Object value = table.get(category);
-		return value == null ? Collections.emptyList() : (List<String>) value;
+		return getSnapshot().getOtherLines(category == null ? "" : category.toLowerCase());
 	}
 
 	public static boolean load() {
@@ -194,11 +333,7 @@ public class Config {
 		if (cfgPath != null) {
 			return load(cfgPath);
 		}
-		if (table == null) {
-			table = new Hashtable<>();
-		} else {
-			table.clear();
-		}
+		publish(ConfigSnapshot.EMPTY);
 		return false;
 	}
 
@@ -208,11 +343,7 @@ public class Config {
 			return load(path);
 		} else {
 			System.out.println(String.format("Config.load(%s) Not found config file.", filename));
-			if (table == null) {
-				table = new Hashtable<>();
-			} else {
-				table.clear();
-			}
+			publish(ConfigSnapshot.EMPTY);
 			return false;
 		}
 	}
@@ -228,54 +359,22 @@ public class Config {
 		return true;
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * 載入失敗時保留原本的內容，不會換成只載入一半的設定。
+	 */
 	public static boolean load(Path path) {
 		// System.out.println(String.format("Start loading config: %s", path));
-		if (table == null) {
-			table = new Hashtable<>();
-		} else {
-			table.clear();
-		}
-		if (categories == null) {
-			categories = new Hashtable<>();
-		} else {
-			categories.clear();
-		}
-		try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-			String section = "";
-			String line;
-			String param;
-			int i;
-			List<String> list;
-			while ((line = br.readLine()) != null) {
-				line = line.trim();
-				if (line.length() == 0 || line.charAt(0) == '#') {
-					continue;
-				}
-				if (line.charAt(0) == '[' && line.charAt(line.length() - 1) == ']') {
-					section = line.substring(1, line.length() - 1).toLowerCase();
-					categories.put(section, true);
-					section += '@';
-					continue;
-				}
-				i = line.indexOf('=');
-				if (i > 0 && isValidParam(param = line.substring(0, i).trim())) {
-					table.put(section + param, line.substring(i + 1).trim());
-					continue;
-				}
-				list = (List<String>) table.get(section);
-				if (list == null) {
-					list = new ArrayList<>(4);
-					table.put(section, list);
-				}
-				list.add(line);
-			}
+		try {
+			publish(useCache ? ConfigCache.load(path) : ConfigParser.parse(path));
 			// System.out.println("Complete loading config.");
 			return true;
 		} catch (Exception e) {
 			System.out.println(String.format("Config.load(%s) has error: %s", path, e));
 			// e.printStackTrace();
 		}
+		if (snapshot == null) {
+			publish(ConfigSnapshot.EMPTY);
+		}
 		return false;
 	}
 }
@@ -0,0 +1,227 @@
+package tw.com.jinnboy.javautil.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 預先解析好的Dates.replaceSymbol()字串，例如「/data/output_yyyyMMdd.csv」或「backup_$yesterday」。
+ *
+ * compile()時用和replaceSymbol()相同的規則找出日期符號的位置，把字串切成文字和欄位交錯的幾段，
+ * 之後format()只需要依序接起來，不必再跑regex。只有日期、沒有時分秒的字串，同一天內的結果會暫存起來直接回傳。
+ *
+ * 建立後不會改變，可以在多個執行緒共用，一般透過Dates.template()取得。
+ *
+ * @author 阿昌
+ */
+public final class DateTemplate {
+	// 欄位代碼：0~7為yyyyMMdd的第幾個字，8~16為HHmmssSSS的第幾個字，17以後為TOKENS
+	private static final int TIME = 8;
+	private static final int TOKEN = 17;
+	private static final int SKIP = -2;
+	private static final int LITERAL = -1;
+	private static final String[] TOKENS = { "$today", "$yesterday", "$tomorrow", "$lastmonth", "$nextmonth" };
+	// 比對條件一定要有yy和mm，dd可以不用有。
+	private static final Pattern YEAR_MONTH = Pattern.compile("(yy)?(yy)[^a-zA-Z0-9]?(mm)[^a-zA-Z0-9]?(dd)?",
+			Pattern.CASE_INSENSITIVE);
+	private static final Pattern MONTH_DAY = Pattern.compile("(mm)[^a-zA-Z0-9]?(dd)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern HOUR_MINUTE = Pattern.compile("(hh):?(mm):?(ss)?(?:\\.?(SSS))?",
+			Pattern.CASE_INSENSITIVE);
+
+	private final String source;
+	private final String[] literals; // literals[i]在fields[i]前面，最後一段文字在literals[fields.length]
+	private final int[] fields;
+	private final boolean dateOnly;
+	private volatile Memo memo;
+
+	private DateTemplate(String source, String[] literals, int[] fields) {
+		this.source = source;
+		this.literals = literals;
+		this.fields = fields;
+		boolean hasTime = false;
+		for (int field : fields) {
+			hasTime |= field >= TIME && field < TOKEN;
+		}
+		this.dateOnly = !hasTime;
+	}
+
+	public static DateTemplate compile(String str) {
+		int[] codes = new int[str.length()];
+		Arrays.fill(codes, LITERAL);
+		StringBuilder sb = new StringBuilder(str);
+		Matcher matcher = YEAR_MONTH.matcher(str);
+		while (matcher.find()) {
+			for (int groupIndex = 1; groupIndex <= 4; groupIndex++) {
+				if (matcher.group(groupIndex) != null) {
+					mark(codes, sb, matcher.start(groupIndex), groupIndex * 2 - 2, 2);
+				}
+			}
+		}
+		// 沒有yy，只有mm和dd的情況。已經換掉的位置先填0，和replaceSymbol()換成數字後的比對結果相同。
+		matcher = MONTH_DAY.matcher(sb.toString());
+		while (matcher.find()) {
+			mark(codes, sb, matcher.start(1), 4, 2);
+			mark(codes, sb, matcher.start(2), 6, 2);
+		}
+		matcher = HOUR_MINUTE.matcher(sb.toString());
+		while (matcher.find()) {
+			for (int groupIndex = 1; groupIndex <= 4; groupIndex++) {
+				if (matcher.group(groupIndex) != null) {
+					mark(codes, sb, matcher.start(groupIndex), TIME + groupIndex * 2 - 2, groupIndex == 4 ? 3 : 2);
+				}
+			}
+		}
+		String work = sb.toString();
+		for (int k = 0; k < TOKENS.length; k++) {
+			String token = TOKENS[k];
+			for (int i = work.indexOf(token); i != -1; i = work.indexOf(token, i + token.length())) {
+				codes[i] = TOKEN + k;
+				Arrays.fill(codes, i + 1, i + token.length(), SKIP);
+			}
+		}
+
+		List<String> literals = new ArrayList<>();
+		List<Integer> fields = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i < codes.length; i++) {
+			if (codes[i] != LITERAL) {
+				if (codes[i] != SKIP) {
+					literals.add(str.substring(start, i));
+					fields.add(codes[i]);
+				}
+				start = i + 1;
+			}
+		}
+		literals.add(str.substring(start));
+		int[] fieldArray = new int[fields.size()];
+		for (int i = 0; i < fieldArray.length; i++) {
+			fieldArray[i] = fields.get(i);
+		}
+		return new DateTemplate(str, literals.toArray(new String[literals.size()]), fieldArray);
+	}
+
+	// 從index開始的length個字依序對應code、code+1...
+	private static void mark(int[] codes, StringBuilder sb, int index, int code, int length) {
+		for (int i = 0; i < length; i++) {
+			codes[index + i] = code + i;
+			sb.setCharAt(index + i, '0');
+		}
+	}
+
+	/**
+	 * 是否只有日期、沒有時分秒，這種字串同一天的結果都相同。
+	 */
+	public boolean isDateOnly() {
+		return dateOnly;
+	}
+
+	public String format() {
+		return format(System.currentTimeMillis());
+	}
+
+	public String format(Date date) {
+		return format(date.getTime());
+	}
+
+	public String format(long time) {
+		if (fields.length == 0) {
+			return source;
+		}
+		Memo current = memo;
+		if (current != null && time >= current.start && time < current.end) {
+			return current.value;
+		}
+		ZoneId zone = ZoneId.systemDefault();
+		LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), zone);
+		LocalDate date = dateTime.toLocalDate();
+		char[] yyyymmdd = yyyymmdd(date);
+		char[] hhmmss = null;
+		StringBuilder sb = new StringBuilder(source.length() + 8);
+		for (int i = 0; i < fields.length; i++) {
+			sb.append(literals[i]);
+			int field = fields[i];
+			if (field < TIME) {
+				sb.append(yyyymmdd[field]);
+			} else if (field < TOKEN) {
+				if (hhmmss == null) {
+					hhmmss = hhmmssSSS(dateTime);
+				}
+				sb.append(hhmmss[field - TIME]);
+			} else {
+				switch (TOKENS[field - TOKEN]) {
+				case "$today":
+					sb.append(yyyymmdd);
+					break;
+				case "$yesterday":
+					sb.append(yyyymmdd(date.minusDays(1)));
+					break;
+				case "$tomorrow":
+					sb.append(yyyymmdd(date.plusDays(1)));
+					break;
+				case "$lastmonth":
+					sb.append(yyyymmdd(date.minusMonths(1)), 0, 6);
+					break;
+				default:
+					sb.append(yyyymmdd(date.plusMonths(1)), 0, 6);
+				}
+			}
+		}
+		sb.append(literals[fields.length]);
+		String value = sb.toString();
+		if (dateOnly) {
+			long start = date.atStartOfDay(zone).toInstant().toEpochMilli();
+			long end = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+			memo = new Memo(start, end, value);
+		}
+		return value;
+	}
+
+	private static char[] yyyymmdd(LocalDate date) {
+		char[] chars = new char[8];
+		digits(chars, 0, date.getYear(), 4);
+		digits(chars, 4, date.getMonthValue(), 2);
+		digits(chars, 6, date.getDayOfMonth(), 2);
+		return chars;
+	}
+
+	private static char[] hhmmssSSS(LocalDateTime time) {
+		char[] chars = new char[9];
+		digits(chars, 0, time.getHour(), 2);
+		digits(chars, 2, time.getMinute(), 2);
+		digits(chars, 4, time.getSecond(), 2);
+		digits(chars, 6, time.getNano() / 1000000, 3);
+		return chars;
+	}
+
+	private static void digits(char[] chars, int offset, int value, int length) {
+		for (int i = offset + length - 1; i >= offset; i--) {
+			chars[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+
+	// 只有日期的字串，記住某一天[start, end)的結果。
+	private static class Memo {
+		private final long start;
+		private final long end;
+		private final String value;
+
+		Memo(long start, long end, String value) {
+			this.start = start;
+			this.end = end;
+			this.value = value;
+		}
+	}
+}
@@ -7,11 +7,14 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Dates {
 	private static HashMap<String, SimpleDateFormat> dateFormats = new HashMap<>();
+	private static final int MAX_TEMPLATES = 1024; // 避免每次傳入不同字串時無限增加
+	private static final ConcurrentHashMap<String, DateTemplate> templates = new ConcurrentHashMap<>();
 
 	private Dates() {
 	}
@@ -73,67 +76,24 @@ public class Dates {
 	// 把str裡的yyyy、MM、dd、HH、mm、ss、SSS取代成年、月、日、時、分、秒、毫秒。
 	// 並把$today、$yesterday、$tomorrow轉成yyyymmdd，$lastmonth、$nextmonth轉成yyyymm。
 	// 很適合用來把檔名或設定變數裡的日期符號轉成對應的數字。
+	// 第一次遇到的str會先解析成DateTemplate暫存起來，之後不用再跑regex。
 	public static String replaceSymbol(String str, Date date) {
 		if (str == null) {
 			return str;
 		}
-		StringBuilder sb = new StringBuilder(str);
-		String yyyymmdd = format("yyyyMMdd", date);
-		String time = format("HHmmssSSS", date);
-		// String yesterday = format("yyyyMMdd", addDay(date, -1));
-		// 比對條件一定要有yy和mm，dd可以不用有。
-		Matcher matcher = Regex.pattern("(yy)?(yy)[^a-zA-Z0-9]?(mm)[^a-zA-Z0-9]?(dd)?", Pattern.CASE_INSENSITIVE)
-				.matcher(str);
-		int index;
-		while (matcher.find()) {
-			for (int groupIndex = 1; groupIndex <= 4; groupIndex++) {
-				if (matcher.group(groupIndex) != null) {
-					index = matcher.start(groupIndex);
-					sb.setCharAt(index, yyyymmdd.charAt(groupIndex * 2 - 2));
-					sb.setCharAt(index + 1, yyyymmdd.charAt(groupIndex * 2 - 1));
-				}
-			}
-		}
-		// 沒有yy，只有mm和dd的情況
-		matcher = Regex.pattern("(mm)[^a-zA-Z0-9]?(dd)", Pattern.CASE_INSENSITIVE).matcher(sb.toString());
-		while (matcher.find()) {
-			index = matcher.start(1);
-			sb.setCharAt(index, yyyymmdd.charAt(4));
-			sb.setCharAt(index + 1, yyyymmdd.charAt(5));
-			index = matcher.start(2);
-			sb.setCharAt(index, yyyymmdd.charAt(6));
-			sb.setCharAt(index + 1, yyyymmdd.charAt(7));
-		}
-		matcher = Regex.pattern("(hh):?(mm):?(ss)?(?:\\.?(SSS))?", Pattern.CASE_INSENSITIVE).matcher(sb.toString());
-		while (matcher.find()) {
-			for (int groupIndex = 1; groupIndex <= 4; groupIndex++) {
-				if (matcher.group(groupIndex) != null) {
-					index = matcher.start(groupIndex);
-					sb.setCharAt(index, time.charAt(groupIndex * 2 - 2));
-					sb.setCharAt(index + 1, time.charAt(groupIndex * 2 - 1));
-					if (groupIndex == 4) {
-						sb.setCharAt(index + 2, time.charAt(8));
-					}
-				}
+		return template(str).format(date);
+	}
+
+	// 取得str對應的DateTemplate，和Regex.pattern()一樣暫存起來重複使用，空間換取時間。
+	public static DateTemplate template(String str) {
+		DateTemplate template = templates.get(str);
+		if (template == null) {
+			template = DateTemplate.compile(str);
+			if (templates.size() < MAX_TEMPLATES) {
+				templates.put(str, template);
 			}
 		}
-		str = sb.toString();
-		if (str.contains("$today")) {
-			str = str.replace("$today", yyyymmdd);
-		}
-		if (str.contains("$yesterday")) {
-			str = str.replace("$yesterday", format("yyyyMMdd", addDay(date, -1)));
-		}
-		if (str.contains("$tomorrow")) {
-			str = str.replace("$tomorrow", format("yyyyMMdd", addDay(date, 1)));
-		}
-		if (str.contains("$lastmonth")) {
-			str = str.replace("$lastmonth", format("yyyyMM", addMonth(date, -1)));
-		}
-		if (str.contains("$nextmonth")) {
-			str = str.replace("$nextmonth", format("yyyyMM", addMonth(date, 1)));
-		}
-		return str;
+		return template;
 	}
 
 	// 把時分秒歸0，變成日期。
@@ -1,32 +1,79 @@
 package tw.com.jinnboy.javautil.util;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+import tw.com.jinnboy.javautil.util.config.ConfigListener;
+import tw.com.jinnboy.javautil.util.log.AsyncAppender;
+import tw.com.jinnboy.javautil.util.log.AsyncAppender.FullPolicy;
+import tw.com.jinnboy.javautil.util.log.CallSite;
+import tw.com.jinnboy.javautil.util.log.ChannelLogOutput;
+import tw.com.jinnboy.javautil.util.log.CompositeAppender;
+import tw.com.jinnboy.javautil.util.log.ConsoleAppender;
+import tw.com.jinnboy.javautil.util.log.LogEvent;
+import tw.com.jinnboy.javautil.util.log.LogFormatter;
+import tw.com.jinnboy.javautil.util.log.LogLayout;
+import tw.com.jinnboy.javautil.util.log.LogLevel;
+import tw.com.jinnboy.javautil.util.log.LogOutput;
+import tw.com.jinnboy.javautil.util.log.LogRouter;
+import tw.com.jinnboy.javautil.util.log.LogRouter.RouteBy;
+import tw.com.jinnboy.javautil.util.log.LogRoller;
+import tw.com.jinnboy.javautil.util.log.LogSink;
+import tw.com.jinnboy.javautil.util.log.LogThreshold;
+import tw.com.jinnboy.javautil.util.log.MappedLogOutput;
+import tw.com.jinnboy.javautil.util.log.MessageFormatter;
+
 /**
  * 簡單方便的Log類別，只要定義好LogPath，之後直接呼叫Log.info()即可，不需要其他設定。
- * 每次呼叫info()、warning()、error()時，都會getStackTrace()一下以紀錄呼叫的類別和函式名稱，簡單暴力樸實無華。
+ * 每次呼叫info()、warning()、error()時，都會用StackWalker往上找一下以紀錄呼叫的類別和函式名稱，
+ * 只走到第一個呼叫Log的frame就停止，組好的「Class-method」字串也會暫存起來重複使用。
  * 
  * 考慮效能問題，可以設定InfoWriteClassMethod=false讓info()不必找尋函式名稱。
  * 
+ * 寫log時由LogFormatter直接把內容編碼成UTF-8寫到FileChannel，時間前綴每秒只計算一次，不會產生Date、String等暫時物件。
+ * 設定LogWriter=mmap可改用MappedByteBuffer寫檔，每個檔案預先配置LogSegmentSize(預設64M)大小，寫滿時換下一個檔案。
+ * 除了每天換檔，設定LogMaxFileSize(例如1G)後，檔案超過大小也會換到下一個編號的檔案，例如javautil-2022-03-30(2).log。
+ * 設定LogCompress=1會由背景執行緒把關閉的檔案壓縮成.gz，LogMaxTotalSize可限制所有log檔的總大小，超過時從最舊的開始刪除。
+ * 
+ * info()、warning()、error()可以使用{}佔位符，例如Log.info("name={}, age={}", name, age)，
+ * 只有在該level確定要寫出時才會組字串，比String.format便宜很多；參數超過3個或傳入陣列時也一樣換掉{}。
+ * pattern沒有{}時仍使用String.format，相容既有的%s寫法。
+ * level由低到高為TRACE、DEBUG、INFO、WARN、ERROR，預設INFO，trace()、debug()預設不會寫出。
+ * 設定LogLevel=W(或呼叫Log.setLevel('W'))後，info()會直接略過，不會格式化也不會找呼叫的函式名稱。
+ * LogLevel可以寫在各category的section裡分別設定，執行中也可以用Log.setLevel(category, level)調整，
+ * 判斷是否寫出只需要讀一次volatile欄位，關閉的level幾乎沒有成本。
+ * 搭配Config.watch()時，修改cfg的LogLevel或InfoWriteClassMethod會直接套用，不需要重新啟動。
+ * 
+ * 設定LogAsync=1可以改成非同步寫出，呼叫端只把log放進ring buffer，由背景執行緒整批寫到檔案。
+ * LogAsyncBufferSize設定buffer大小(預設8192)，LogAsyncFullPolicy設定buffer滿時的處理方式(BLOCK、DROP、SAMPLE，預設BLOCK)，
+ * SAMPLE時每LogAsyncSampleRate筆保留一筆(預設10)。
+ * 
+ * 設定LogFormat=json或binary可以改寫成結構化的格式(請見LogLayout)，方便其他程式處理，
+ * 可以用LogDecoder讀回LogEvent，或用LogTail轉成文字查看。
+ * 
+ * 設定LogRoute=category、thread或task時，log會依category、執行緒名稱或Log.setTask()指定的task分別寫到不同的檔案，
+ * 檔名由LogRoutePath決定(預設log/javautil-{key}-yyyy-MM-dd.log)，每個檔案有自己的Logger，同時執行的task不會互相搶lock。
+ * LogRouteMaxLoggers限制同時開啟的Logger數量(預設64)，超過時關閉最久沒有寫入的Logger。
+ * 
+ * Logger預設會把error另外印到System.err，可以用Logger.addAppender()再加上其他輸出目標。
+ * 
  * 若需要同時寫第二個Log，可以直接建立新的Logger。
  * log.Logger logger = new log.Logger("xxx.log");
  * 
  * @author 阿昌
  */
 public class Log {
-	private static final SimpleDateFormat sfd = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 	private static String logPath = "log/javautil-yyyy-MM-dd.log";
-	private static Logger logger;
-	private static boolean InfoWriteClassMethod = "1".equals(Config.get("InfoWriteClassMethod", "1"));
+	private static final Logger logger;
+	private static final LogRouter router;
+	private static volatile boolean InfoWriteClassMethod = "1".equals(Config.get("InfoWriteClassMethod", "1"));
 
 	static {
 		String logPathStr = Args.get("logPath");
@@ -39,31 +86,133 @@ public class Log {
 			logPath = "log/javautil-yyyy-MM-dd.log";
 		}
 		logger = new Logger(logPath);
+		String route = Config.get("LogRoute", "");
+		if (Strings.notEmpty(route)) {
+			RouteBy routeBy = parseEnum("LogRoute", RouteBy.class, null);
+			router = routeBy == null ? null
+					: new LogRouter(Config.get("LogRoutePath", "log/javautil-{key}-yyyy-MM-dd.log"), routeBy, logger,
+							parseInt("LogRouteMaxLoggers", LogRouter.DEFAULT_MAX_LOGGERS));
+		} else {
+			router = null;
+		}
+		// cfg重新載入時套用新的LogLevel和InfoWriteClassMethod
+		Config.addListener(new ConfigListener() {
+			@Override
+			public void changed(Set<String> keys) {
+				for (String key : keys) {
+					String param = key.substring(key.indexOf('@') + 1);
+					if ("LogLevel".equals(param)) {
+						LogThreshold.reloadAll();
+					} else if ("InfoWriteClassMethod".equals(param)) {
+						InfoWriteClassMethod = "1".equals(Config.get("InfoWriteClassMethod", "1"));
+					}
+				}
+			}
+		});
 	}
 
 	private Log() {
 	}
 
+	// 沒有設定LogRoute時router固定為null，JIT會直接用預設的logger
+	private static Logger logger() {
+		return router == null ? logger : router.get();
+	}
+
+	// 設定LogRoute時先判斷level再找Logger，關閉的level不必查LogRouter
+	private static boolean isEnabled(LogLevel level) {
+		return router == null ? logger.isEnabled(level) : router.isEnabled(level);
+	}
+
+	/**
+	 * 設定LogRoute時回傳LogRouter，否則回傳null。
+	 */
+	public static LogRouter getRouter() {
+		return router;
+	}
+
+	/**
+	 * LogRoute=task時，指定目前執行緒的task，之後的log寫到該task的檔案；task為null時改回預設的檔案。
+	 */
+	public static void setTask(String task) {
+		if (router != null) {
+			router.setTask(task);
+		}
+	}
+
 	public static void setLogPath(String logPath) {
 		logger.setLogPath(logPath);
 	}
 
-	private static String classSimpleName(String name) {
-		int i = name.lastIndexOf('.');
-		return i != -1 ? name.substring(i + 1) : name;
+	/**
+	 * 設定info()、debug()、trace()是否要找呼叫的類別和函式名稱，等同Config的InfoWriteClassMethod。
+	 */
+	public static void setInfoWriteClassMethod(boolean infoWriteClassMethod) {
+		InfoWriteClassMethod = infoWriteClassMethod;
+	}
+
+	// 解析Config裡「64M」、「512K」、「1G」這類大小設定，沒有單位時視為bytes；沒有設定、格式錯誤或超過maxSize時使用defaultSize。
+	private static long parseSize(String param, long defaultSize, long maxSize) {
+		String size = Config.get(param, "").trim().toUpperCase();
+		if (size.endsWith("B")) {
+			size = size.substring(0, size.length() - 1);
+		}
+		if (size.isEmpty()) {
+			return defaultSize;
+		}
+		long unit = 1;
+		char ch = size.charAt(size.length() - 1);
+		if (ch == 'K') {
+			unit = 1024L;
+		} else if (ch == 'M') {
+			unit = 1024L * 1024;
+		} else if (ch == 'G') {
+			unit = 1024L * 1024 * 1024;
+		}
+		if (unit != 1) {
+			size = size.substring(0, size.length() - 1).trim();
+		}
+		long value;
+		try {
+			value = Long.parseLong(size);
+		} catch (NumberFormatException e) {
+			System.out.println(String.format("Log.parseSize(%s) has error: %s", param, e));
+			return defaultSize;
+		}
+		if (value < 0 || value > maxSize / unit) {
+			System.out.println(String.format("Log.parseSize(%s) has error: %s is out of range", param,
+					Config.get(param, "")));
+			return defaultSize;
+		}
+		return value * unit;
+	}
+
+	// 解析Config裡的整數設定，沒有設定或格式錯誤時使用defaultValue，不能讓Log的初始化失敗。
+	private static int parseInt(String param, int defaultValue) {
+		String value = Config.get(param, "").trim();
+		if (value.isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			System.out.println(String.format("Log.parseInt(%s) has error: %s", param, e));
+			return defaultValue;
+		}
 	}
 
-	private static String getCallingClassMethod() {
-		// 等升級到Java 9可改成使用StackWalker
-		StackTraceElement[] elements = Thread.currentThread().getStackTrace();
-		// elements[0]=Thread.getStackTrace()
-		// elements[1]=Log.callingClassMethod()
-		// elements[2]=Log.info()
-		// elements[3]=the calling class
-		if (elements.length >= 3) {
-			return classSimpleName(elements[3].getClassName()) + '-' + elements[3].getMethodName();
+	// 解析Config裡的enum設定(不分大小寫)，沒有設定或名稱錯誤時使用defaultValue。
+	private static <E extends Enum<E>> E parseEnum(String param, Class<E> type, E defaultValue) {
+		String value = Config.get(param, "").trim();
+		if (value.isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Enum.valueOf(type, value.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			System.out.println(String.format("Log.parseEnum(%s) has error: %s", param, e));
+			return defaultValue;
 		}
-		return null;
 	}
 
 	private static String errorMsg(String message, Throwable thrown) {
@@ -84,148 +233,684 @@ public class Log {
 		return message;
 	}
 
-	private static String format(Date time, char level, String classMethod, String message) {
-		StringBuilder sb = new StringBuilder(128);
-		sb.append('[');
-		sb.append(sfd.format(time));
-		sb.append(']');
-		sb.append(' ');
-		sb.append(level);
-		if (classMethod != null && classMethod.length() > 0) {
-			sb.append(' ');
-			sb.append(classMethod);
+	public static boolean isTraceEnabled() {
+		return isEnabled(LogLevel.TRACE);
+	}
+
+	public static boolean isDebugEnabled() {
+		return isEnabled(LogLevel.DEBUG);
+	}
+
+	public static boolean isInfoEnabled() {
+		return isEnabled(LogLevel.INFO);
+	}
+
+	public static boolean isWarningEnabled() {
+		return isEnabled(LogLevel.WARN);
+	}
+
+	public static boolean isErrorEnabled() {
+		return isEnabled(LogLevel.ERROR);
+	}
+
+	/**
+	 * 設定最低要寫出的level(T、D、I、W、E)，低於此level的log會直接略過，不會格式化也不會找呼叫的函式名稱。
+	 */
+	public static void setLevel(char level) {
+		logger.setLevel(level);
+	}
+
+	public static void setLevel(LogLevel level) {
+		logger.setLevel(level);
+	}
+
+	/**
+	 * 執行中調整某個category的level，該category的所有Logger立即套用。category為null表示global。
+	 */
+	public static void setLevel(String category, LogLevel level) {
+		LogThreshold.of(category).set(level);
+	}
+
+	public static LogLevel getLevel(String category) {
+		return LogThreshold.of(category).get();
+	}
+
+	public static void trace(String format, Object... args) {
+		if (isEnabled(LogLevel.TRACE)) {
+			logger().trace(format, args);
+		}
+	}
+
+	public static void trace(String message) {
+		if (isEnabled(LogLevel.TRACE)) {
+			logger().trace(message);
+		}
+	}
+
+	public static void trace(String format, Object arg) {
+		if (isEnabled(LogLevel.TRACE)) {
+			logger().trace(format, arg);
+		}
+	}
+
+	public static void trace(String format, Object arg1, Object arg2) {
+		if (isEnabled(LogLevel.TRACE)) {
+			logger().trace(format, arg1, arg2);
+		}
+	}
+
+	public static void trace(String format, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(LogLevel.TRACE)) {
+			logger().trace(format, arg1, arg2, arg3);
+		}
+	}
+
+	public static void debug(String format, Object... args) {
+		if (isEnabled(LogLevel.DEBUG)) {
+			logger().debug(format, args);
+		}
+	}
+
+	public static void debug(String message) {
+		if (isEnabled(LogLevel.DEBUG)) {
+			logger().debug(message);
+		}
+	}
+
+	public static void debug(String format, Object arg) {
+		if (isEnabled(LogLevel.DEBUG)) {
+			logger().debug(format, arg);
+		}
+	}
+
+	public static void debug(String format, Object arg1, Object arg2) {
+		if (isEnabled(LogLevel.DEBUG)) {
+			logger().debug(format, arg1, arg2);
+		}
+	}
+
+	public static void debug(String format, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(LogLevel.DEBUG)) {
+			logger().debug(format, arg1, arg2, arg3);
 		}
-		sb.append(':');
-		sb.append(' ');
-		sb.append(message);
-		sb.append("\r\n");
-		return sb.toString();
 	}
 
 	public static void info(String format, Object... args) {
-		String message = String.format(format, args);
-		logger.write(new Date(), 'I', InfoWriteClassMethod ? getCallingClassMethod() : null, message);
+		if (isEnabled(LogLevel.INFO)) {
+			logger().info(format, args);
+		}
 	}
 
 	public static void info(String message) {
-		logger.write(new Date(), 'I', InfoWriteClassMethod ? getCallingClassMethod() : null, message);
+		if (isEnabled(LogLevel.INFO)) {
+			logger().info(message);
+		}
+	}
+
+	public static void info(String format, Object arg) {
+		if (isEnabled(LogLevel.INFO)) {
+			logger().info(format, arg);
+		}
+	}
+
+	public static void info(String format, Object arg1, Object arg2) {
+		if (isEnabled(LogLevel.INFO)) {
+			logger().info(format, arg1, arg2);
+		}
+	}
+
+	public static void info(String format, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(LogLevel.INFO)) {
+			logger().info(format, arg1, arg2, arg3);
+		}
 	}
 
 	public static void warning(String format, Object... args) {
-		String message = String.format(format, args);
-		logger.write(new Date(), 'W', getCallingClassMethod(), message);
+		if (isEnabled(LogLevel.WARN)) {
+			logger().warning(format, args);
+		}
 	}
 
 	public static void warning(String message) {
-		logger.write(new Date(), 'W', getCallingClassMethod(), message);
+		if (isEnabled(LogLevel.WARN)) {
+			logger().warning(message);
+		}
+	}
+
+	public static void warning(String format, Object arg) {
+		if (isEnabled(LogLevel.WARN)) {
+			logger().warning(format, arg);
+		}
+	}
+
+	public static void warning(String format, Object arg1, Object arg2) {
+		if (isEnabled(LogLevel.WARN)) {
+			logger().warning(format, arg1, arg2);
+		}
+	}
+
+	public static void warning(String format, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(LogLevel.WARN)) {
+			logger().warning(format, arg1, arg2, arg3);
+		}
 	}
 
 	public static void error(String format, Object... args) {
-		String message = String.format(format, args);
-		logger.write(new Date(), 'E', getCallingClassMethod(), message);
+		if (isEnabled(LogLevel.ERROR)) {
+			logger().error(format, args);
+		}
+	}
+
+	public static void error(String message) {
+		if (isEnabled(LogLevel.ERROR)) {
+			logger().error(message);
+		}
+	}
+
+	public static void error(String format, Object arg) {
+		if (isEnabled(LogLevel.ERROR)) {
+			logger().error(format, arg);
+		}
+	}
+
+	public static void error(String format, Object arg1, Object arg2) {
+		if (isEnabled(LogLevel.ERROR)) {
+			logger().error(format, arg1, arg2);
+		}
+	}
+
+	public static void error(String format, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(LogLevel.ERROR)) {
+			logger().error(format, arg1, arg2, arg3);
+		}
 	}
 
 	public static void error(Throwable thrown, String format, Object... args) {
-		String message = String.format(format, args);
-		logger.write(new Date(), 'E', getCallingClassMethod(), errorMsg(message, thrown));
+		if (isEnabled(LogLevel.ERROR)) {
+			logger().error(thrown, format, args);
+		}
+	}
+
+	public static void error(Throwable thrown, String format, Object arg) {
+		if (isEnabled(LogLevel.ERROR)) {
+			logger().error(thrown, format, arg);
+		}
+	}
+
+	public static void error(Throwable thrown, String format, Object arg1, Object arg2) {
+		if (isEnabled(LogLevel.ERROR)) {
+			logger().error(thrown, format, arg1, arg2);
+		}
+	}
+
+	public static void error(Throwable thrown, String format, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(LogLevel.ERROR)) {
+			logger().error(thrown, format, arg1, arg2, arg3);
+		}
 	}
 
 	public static class Logger {
 		private String logPath;
-		private BufferedWriter bw;
+		private LogOutput output;
 		private long expiration = 0;
+		private boolean mapped = false;
+		private int segmentSize = 64 * 1024 * 1024;
+		private long maxFileSize = 0;
+		private boolean compress = false;
+		private long maxTotalSize = 0;
+		private LogRoller roller;
+		private Path basePath; // 今天的第一個檔案
+		private volatile AsyncAppender async;
+		private final LogThreshold threshold;
+		private volatile LogLayout layout = LogLayout.TEXT;
 
 		public Logger(String logPath) {
+			this(logPath, Args.getCategory());
+		}
+
+		/**
+		 * 同一個category的Logger共用level設定，初始值取自Config該category的LogLevel。
+		 */
+		public Logger(String logPath, String category) {
 			this.logPath = logPath;
+			this.threshold = LogThreshold.of(category);
+			setLayout(LogLayout.of(Config.get("LogFormat", "text")));
+			if ("mmap".equalsIgnoreCase(Config.get("LogWriter", ""))) {
+				setMapped((int) parseSize("LogSegmentSize", 64 * 1024 * 1024, Integer.MAX_VALUE));
+			}
+			setRolling(parseSize("LogMaxFileSize", 0, Long.MAX_VALUE), "1".equals(Config.get("LogCompress", "0")),
+					parseSize("LogMaxTotalSize", 0, Long.MAX_VALUE));
+			if ("1".equals(Config.get("LogAsync", "0"))) {
+				setAsync(parseInt("LogAsyncBufferSize", 8192), parseEnum("LogAsyncFullPolicy", FullPolicy.class,
+						FullPolicy.BLOCK), parseInt("LogAsyncSampleRate", 10));
+			}
+		}
+
+		/**
+		 * 改成非同步寫出：呼叫端只把log放進大小為bufferSize的ring buffer，由背景執行緒整批寫到檔案。
+		 * JVM結束時會自動把buffer裡剩下的log寫完；不再使用時呼叫close()停止背景執行緒。
+		 */
+		public void setAsync(int bufferSize, FullPolicy fullPolicy, int sampleRate) {
+			AsyncAppender appender = new AsyncAppender("Log-" + Paths.getSimpleName(logPath), appenders, bufferSize,
+					fullPolicy, sampleRate);
+			AsyncAppender previous;
+			synchronized (this) {
+				previous = async;
+				async = appender;
+			}
+			AsyncLoggers.loggers.add(this);
+			if (previous != null) {
+				// 背景執行緒寫檔時需要Logger的lock，不能在lock裡等它結束
+				previous.close();
+			}
 		}
 
-		public void setLogPath(String logPath) {
+		/**
+		 * 設定最低要寫出的level(T、D、I、W、E)，低於此level的log會直接略過。同一個category的Logger會一起套用。
+		 */
+		public void setLevel(char level) {
+			threshold.set(LogLevel.of(level));
+		}
+
+		public void setLevel(LogLevel level) {
+			threshold.set(level);
+		}
+
+		public LogLevel getLevel() {
+			return threshold.get();
+		}
+
+		public boolean isEnabled(char level) {
+			return threshold.isEnabled(LogLevel.of(level));
+		}
+
+		public boolean isEnabled(LogLevel level) {
+			return threshold.isEnabled(level);
+		}
+
+		/**
+		 * 改用MappedByteBuffer寫檔：每個檔案預先配置segmentSize大小的segment，寫滿或跨日時換下一個檔案，
+		 * 關檔時再截到實際長度。同一天寫滿的檔案依Paths.nonduplicatedPath命名，例如xxx(2).log、xxx(3).log。
+		 */
+		public synchronized void setMapped(int segmentSize) {
+			this.mapped = true;
+			this.segmentSize = segmentSize;
+			closeWriter();
+		}
+
+		/**
+		 * 設定切檔規則，除了每天換檔，同一天的檔案超過maxFileSize時也會換到下一個編號的檔案(xxx(2).log)。
+		 * compress=true時，關閉的檔案會由背景執行緒壓縮成.gz；maxTotalSize大於0時，總大小超過就從最舊的檔案開始刪除。
+		 * maxFileSize、maxTotalSize為0表示不限制。
+		 */
+		public synchronized void setRolling(long maxFileSize, boolean compress, long maxTotalSize) {
+			this.maxFileSize = maxFileSize;
+			this.compress = compress;
+			this.maxTotalSize = maxTotalSize;
+			this.roller = null;
+		}
+
+		/**
+		 * 設定log檔的格式(TEXT、JSON、BINARY)，之後寫出的log會換到新的格式。
+		 * 同一個檔案混用不同格式時LogDecoder無法讀取，中途切換請一併更換logPath。
+		 */
+		public synchronized void setLayout(LogLayout layout) {
+			if (this.layout != layout) {
+				this.layout = layout;
+				closeWriter();
+			}
+		}
+
+		public synchronized void setLogPath(String logPath) {
 			this.logPath = logPath;
-			if (bw != null) {
+			this.roller = null;
+			closeWriter();
+		}
+
+		/**
+		 * 關閉檔案。非同步模式時，會先等buffer裡的log寫完並停止背景執行緒，之後的log改成同步寫出。
+		 */
+		public void close() {
+			AsyncAppender appender;
+			synchronized (this) {
+				appender = async;
+				async = null;
+			}
+			if (appender != null) {
+				appender.close();
+				AsyncLoggers.loggers.remove(this);
+			}
+			closeWriter();
+		}
+
+		private synchronized void closeWriter() {
+			if (output != null) {
 				try {
-					bw.close();
+					output.close();
 				} catch (IOException e) {
-					// e.printStackTrace();
 				}
-				bw = null;
+				output = null;
 			}
 		}
 
-		public synchronized void close() {
-			if (bw != null) {
-				try {
-					bw.close();
-				} catch (IOException e) {
+		public void write(Date time, char level, String classMethod, String message) {
+			write(time.getTime(), level, classMethod, message);
+		}
+
+		public void write(long time, char level, String classMethod, String message) {
+			AsyncAppender appender = async;
+			if (appender != null && appender.isRunning()) {
+				// 被FullPolicy丟掉時也算處理完畢，只有AsyncAppender已關閉才改成同步寫出
+				if (appender.publish(time, level, classMethod, message) || appender.isRunning()) {
+					return;
 				}
-				bw = null;
+			}
+			appenders.write(time, level, classMethod, message);
+		}
+
+		/**
+		 * 除了寫檔，另外把log交給sink，例如再寫一份到別的地方。
+		 */
+		public void addAppender(LogSink sink) {
+			appenders.add(sink);
+		}
+
+		public boolean removeAppender(LogSink sink) {
+			return appenders.remove(sink);
+		}
+
+		// 非同步模式的Logger，JVM結束時由同一個shutdown hook全部關閉；第一次呼叫setAsync()時才註冊hook。
+		private static final class AsyncLoggers {
+			static final Set<Logger> loggers = ConcurrentHashMap.newKeySet();
+
+			static {
+				Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (Logger logger : loggers) {
+							logger.close();
+						}
+					}
+				}, "Log-shutdown"));
 			}
 		}
 
-		public synchronized void write(Date time, char level, String classMethod, String message) {
-			try {
-				if (time.getTime() > expiration) {
-					close();
+		// 寫到log檔，非同步模式時由背景執行緒呼叫，整批寫完才flush。
+		private final LogSink fileSink = new LogSink() {
+			@Override
+			public void write(LogEvent event) {
+				// 在lock外先格式化，lock裡只做寫檔
+				ByteBuffer buf = LogFormatter.get().format(layout, event.getTime(), event.getLevel(),
+						event.getClassMethod(), event.getMessage());
+				synchronized (Logger.this) {
+					try {
+						writeBytes(event.getTime(), buf);
+					} catch (IOException e) {
+						closeWriter();
+					}
 				}
-				String str = Log.format(time, level, classMethod, message);
-				if (level == 'E') {
-					System.err.print(str);
+			}
+
+			@Override
+			public void flush() {
+				synchronized (Logger.this) {
+					try {
+						if (output != null) {
+							output.flush();
+						}
+					} catch (IOException e) {
+						closeWriter();
+					}
 				}
-				if (bw == null) {
-					Path path = Paths.get(Paths.jarFolder(), Dates.replaceSymbol(logPath));
-					Files.createDirectories(path.toAbsolutePath().getParent());
-					bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
-							StandardOpenOption.APPEND);
-					long offset = TimeZone.getDefault().getRawOffset();
-					long now = time.getTime();
-					long dayMillis = TimeUnit.DAYS.toMillis(1);
-					expiration = now + dayMillis - ((now + offset) % dayMillis);
+			}
+
+			@Override
+			public String toString() {
+				return logPath;
+			}
+		};
+
+		// 預設寫檔，error另外以文字格式印到System.err
+		private final CompositeAppender appenders = new CompositeAppender(fileSink,
+				new ConsoleAppender(System.err, LogLevel.ERROR));
+
+		// 寫入一行log，跨日時換新檔，超過大小或mmap的segment寫滿時換到下一個編號的檔案。
+		private void writeBytes(long time, ByteBuffer buf) throws IOException {
+			Path closed = null;
+			if (time > expiration && output != null) {
+				closed = output.getPath();
+				closeWriter();
+			}
+			if (output == null) {
+				if (roller == null) {
+					roller = new LogRoller(Paths.jarFolder(), logPath, maxFileSize, compress, maxTotalSize);
 				}
-				bw.write(str);
-				bw.flush();
-			} catch (IOException e) {
-				close();
+				basePath = roller.basePath(time);
+				Files.createDirectories(basePath.toAbsolutePath().getParent());
+				output = openOutput(roller.currentPath(basePath));
+				long offset = TimeZone.getDefault().getRawOffset();
+				long dayMillis = TimeUnit.DAYS.toMillis(1);
+				expiration = time + dayMillis - ((time + offset) % dayMillis);
+			}
+			if (closed != null) {
+				roller.closed(closed, output.getPath());
 			}
+			if (!output.write(buf)) {
+				roll();
+				output.write(buf);
+			} else if (roller.shouldRoll(output)) {
+				roll();
+			}
+		}
+
+		// 關閉目前的檔案交給LogRoller壓縮，接著開啟同一天的下一個編號。
+		private void roll() throws IOException {
+			Path closed = output.getPath();
+			closeWriter();
+			output = openOutput(roller.nextPath(basePath));
+			roller.closed(closed, output.getPath());
+		}
+
+		private LogOutput openOutput(Path path) throws IOException {
+			return mapped ? new MappedLogOutput(path, segmentSize) : new ChannelLogOutput(path);
 		}
 
-		private String getCallingClassMethod() {
-			// 等升級到Java 9可改成使用StackWalker
-			StackTraceElement[] elements = Thread.currentThread().getStackTrace();
-			// elements[0]=Thread.getStackTrace()
-			// elements[1]=Log.callingClassMethod()
-			// elements[2]=LogInstance.info()
-			// elements[3]=the calling class
-			if (elements.length >= 3) {
-				return classSimpleName(elements[3].getClassName()) + '-' + elements[3].getMethodName();
+		public void trace(String format, Object... args) {
+			if (isEnabled(LogLevel.TRACE)) {
+				log('T', null, format, args);
+			}
+		}
+
+		public void trace(String message) {
+			if (isEnabled(LogLevel.TRACE)) {
+				log('T', null, message);
+			}
+		}
+
+		public void trace(String format, Object arg) {
+			if (isEnabled(LogLevel.TRACE)) {
+				log('T', null, format, arg);
+			}
+		}
+
+		public void trace(String format, Object arg1, Object arg2) {
+			if (isEnabled(LogLevel.TRACE)) {
+				log('T', null, format, arg1, arg2);
+			}
+		}
+
+		public void trace(String format, Object arg1, Object arg2, Object arg3) {
+			if (isEnabled(LogLevel.TRACE)) {
+				log('T', null, format, arg1, arg2, arg3);
+			}
+		}
+
+		public void debug(String format, Object... args) {
+			if (isEnabled(LogLevel.DEBUG)) {
+				log('D', null, format, args);
+			}
+		}
+
+		public void debug(String message) {
+			if (isEnabled(LogLevel.DEBUG)) {
+				log('D', null, message);
+			}
+		}
+
+		public void debug(String format, Object arg) {
+			if (isEnabled(LogLevel.DEBUG)) {
+				log('D', null, format, arg);
+			}
+		}
+
+		public void debug(String format, Object arg1, Object arg2) {
+			if (isEnabled(LogLevel.DEBUG)) {
+				log('D', null, format, arg1, arg2);
+			}
+		}
+
+		public void debug(String format, Object arg1, Object arg2, Object arg3) {
+			if (isEnabled(LogLevel.DEBUG)) {
+				log('D', null, format, arg1, arg2, arg3);
 			}
-			return null;
 		}
 
 		public void info(String format, Object... args) {
-			String message = String.format(format, args);
-			write(new Date(), 'I', InfoWriteClassMethod ? Log.getCallingClassMethod() : null, message);
+			if (isEnabled(LogLevel.INFO)) {
+				log('I', null, format, args);
+			}
 		}
 
 		public void info(String message) {
-			write(new Date(), 'I', InfoWriteClassMethod ? Log.getCallingClassMethod() : null, message);
+			if (isEnabled(LogLevel.INFO)) {
+				log('I', null, message);
+			}
+		}
+
+		public void info(String format, Object arg) {
+			if (isEnabled(LogLevel.INFO)) {
+				log('I', null, format, arg);
+			}
+		}
+
+		public void info(String format, Object arg1, Object arg2) {
+			if (isEnabled(LogLevel.INFO)) {
+				log('I', null, format, arg1, arg2);
+			}
+		}
+
+		public void info(String format, Object arg1, Object arg2, Object arg3) {
+			if (isEnabled(LogLevel.INFO)) {
+				log('I', null, format, arg1, arg2, arg3);
+			}
 		}
 
 		public void warning(String format, Object... args) {
-			String message = String.format(format, args);
-			write(new Date(), 'W', getCallingClassMethod(), message);
+			if (isEnabled(LogLevel.WARN)) {
+				log('W', null, format, args);
+			}
 		}
 
 		public void warning(String message) {
-			write(new Date(), 'W', getCallingClassMethod(), message);
+			if (isEnabled(LogLevel.WARN)) {
+				log('W', null, message);
+			}
+		}
+
+		public void warning(String format, Object arg) {
+			if (isEnabled(LogLevel.WARN)) {
+				log('W', null, format, arg);
+			}
+		}
+
+		public void warning(String format, Object arg1, Object arg2) {
+			if (isEnabled(LogLevel.WARN)) {
+				log('W', null, format, arg1, arg2);
+			}
+		}
+
+		public void warning(String format, Object arg1, Object arg2, Object arg3) {
+			if (isEnabled(LogLevel.WARN)) {
+				log('W', null, format, arg1, arg2, arg3);
+			}
 		}
 
 		public void error(String format, Object... args) {
-			String message = String.format(format, args);
-			write(new Date(), 'E', getCallingClassMethod(), message);
+			if (isEnabled(LogLevel.ERROR)) {
+				log('E', null, format, args);
+			}
+		}
+
+		public void error(String message) {
+			if (isEnabled(LogLevel.ERROR)) {
+				log('E', null, message);
+			}
+		}
+
+		public void error(String format, Object arg) {
+			if (isEnabled(LogLevel.ERROR)) {
+				log('E', null, format, arg);
+			}
+		}
+
+		public void error(String format, Object arg1, Object arg2) {
+			if (isEnabled(LogLevel.ERROR)) {
+				log('E', null, format, arg1, arg2);
+			}
+		}
+
+		public void error(String format, Object arg1, Object arg2, Object arg3) {
+			if (isEnabled(LogLevel.ERROR)) {
+				log('E', null, format, arg1, arg2, arg3);
+			}
 		}
 
 		public void error(Throwable thrown, String format, Object... args) {
-			String message = String.format(format, args);
-			write(new Date(), 'E', getCallingClassMethod(), errorMsg(message, thrown));
+			if (isEnabled(LogLevel.ERROR)) {
+				log('E', thrown, format, args);
+			}
+		}
+
+		public void error(Throwable thrown, String format, Object arg) {
+			if (isEnabled(LogLevel.ERROR)) {
+				log('E', thrown, format, arg);
+			}
+		}
+
+		public void error(Throwable thrown, String format, Object arg1, Object arg2) {
+			if (isEnabled(LogLevel.ERROR)) {
+				log('E', thrown, format, arg1, arg2);
+			}
+		}
+
+		public void error(Throwable thrown, String format, Object arg1, Object arg2, Object arg3) {
+			if (isEnabled(LogLevel.ERROR)) {
+				log('E', thrown, format, arg1, arg2, arg3);
+			}
+		}
+
+		// trace()~error()確定level要寫出後都由這裡組訊息寫出，每種參數數量各有一個版本，不必建立陣列。
+		// pattern有{}時依序換成args，沒有時使用String.format；沒有參數時message原樣寫出。
+		private void log(char level, Throwable thrown, String pattern, Object[] args) {
+			log(level, thrown, MessageFormatter.format(pattern, args));
+		}
+
+		private void log(char level, Throwable thrown, String pattern, Object arg) {
+			log(level, thrown, MessageFormatter.format(pattern, arg));
+		}
+
+		private void log(char level, Throwable thrown, String pattern, Object arg1, Object arg2) {
+			log(level, thrown, MessageFormatter.format(pattern, arg1, arg2));
+		}
+
+		private void log(char level, Throwable thrown, String pattern, Object arg1, Object arg2, Object arg3) {
+			log(level, thrown, MessageFormatter.format(pattern, arg1, arg2, arg3));
+		}
+
+		// warning、error一定會記錄呼叫的函式名稱
+		private void log(char level, Throwable thrown, String message) {
+			String classMethod = level == 'W' || level == 'E' || InfoWriteClassMethod ? CallSite.resolve() : null;
+			write(System.currentTimeMillis(), level, classMethod, errorMsg(message, thrown));
 		}
 	}
 
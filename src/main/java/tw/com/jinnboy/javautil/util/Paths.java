@@ -120,6 +120,20 @@ public class Paths {
 		if (!Files.exists(path)) {
 			return path;
 		}
+		for (int n = Strings.notEmpty(prefix) ? 1 : 2; n < 1000; n++) {
+			Path newPath = numberedPath(path, prefix, n);
+			if (!Files.exists(newPath)) {
+				return newPath;
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * 依nonduplicatedPath的命名規則，回傳第n個編號的檔名。 例如path的檔名為F.txt，
+	 * prefix為空白時回傳F(n).txt，prefix為bak時回傳F(bakn).txt。
+	 */
+	public static Path numberedPath(Path path, String prefix, int n) {
 		String name = path.getFileName().toString();
 		String extension = "";
 		int i = name.lastIndexOf('.');
@@ -128,23 +142,7 @@ public class Paths {
 			name = name.substring(0, i);
 		}
 		Path parent = path.toAbsolutePath().getParent();
-		Path newPath = null;
-		if (Strings.notEmpty(prefix)) {
-			for (int n = 1; n < 1000; n++) {
-				newPath = parent.resolve(name + '(' + prefix + n + ')' + extension);
-				if (!Files.exists(newPath)) {
-					return newPath;
-				}
-			}
-		} else {
-			for (int n = 2; n < 1000; n++) {
-				newPath = parent.resolve(name + '(' + n + ')' + extension);
-				if (!Files.exists(newPath)) {
-					return newPath;
-				}
-			}
-		}
-		return path;
+		return parent.resolve(name + '(' + Strings.toString(prefix) + n + ')' + extension);
 	}
 
 	public static void moveToArchiveIfExists(Path path) {
@@ -0,0 +1,188 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tw.com.jinnboy.javautil.util.Args;
+import tw.com.jinnboy.javautil.util.Config;
+import tw.com.jinnboy.javautil.util.Strings;
+
+/**
+ * 用類別裡的@AutoBind描述命令列參數：名稱、alias、型別、是否必填、預設值和說明。
+ *
+ * parse()只掃過args一次，直接填入目標物件，不必在程式各處呼叫Args.get()。
+ * 指令沒有輸入的變數依Args.getByNames()的順序查runtimeArg、環境變數和Config，再來才用defaultValue。
+ * 所有錯誤(缺少必填、格式錯誤、沒有接值的參數)收集起來一次丟出BindException，有錯誤時不會修改目標物件。
+ *
+ * 沒有錯誤時每個參數也會放進Args，原本用Args.get()取值的程式不受影響；有錯誤時Args也不會留下任何參數。
+ *
+ * <pre>
+ * class Options {
+ *     &#64;AutoBind(alias = "o", required = true, description = "輸出檔案")
+ *     String output;
+ *     &#64;AutoBind(defaultValue = "100")
+ *     int batchSize;
+ *     &#64;AutoBind
+ *     boolean verbose;
+ * }
+ * Options options = Args.load(args, new Options());
+ * </pre>
+ *
+ * @author 阿昌
+ */
+public final class ArgSchema<T> {
+	private static final ClassValue<ArgSchema<?>> schemas = new ClassValue<ArgSchema<?>>() {
+		@Override
+		protected ArgSchema<?> computeValue(Class<?> type) {
+			return new ArgSchema<>(type);
+		}
+	};
+
+	private final Class<T> type;
+	private final BindField[] fields;
+	private final Map<String, Integer> indexes = new HashMap<>(); // 參數名稱和alias對應到fields的位置
+
+	private ArgSchema(Class<T> type) {
+		this.type = type;
+		this.fields = BindingPlan.of(type).fields();
+		for (int i = 0; i < fields.length; i++) {
+			for (String paramName : fields[i].paramNames) {
+				Integer previous = indexes.putIfAbsent(paramName, i);
+				if (previous != null) {
+					throw new IllegalArgumentException(String.format("%s has duplicated param name: %s",
+							type.getSimpleName(), paramName));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 每個類別只建立一次，之後直接回傳同一個ArgSchema。
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> ArgSchema<T> of(Class<T> type) {
+		return (ArgSchema<T>) schemas.get(type);
+	}
+
+	/**
+	 * 解析args並填入target，第一個參數是Config的category時會先切換category。
+	 *
+	 * @throws BindException 有任何參數錯誤時，錯誤訊息包含全部的錯誤
+	 */
+	public T parse(String[] args, T target) {
+		List<String> errors = new ArrayList<>();
+		List<String> argPairs = new ArrayList<>(); // 名稱和值交錯存放，沒有錯誤時才放進Args
+		String[] values = new String[fields.length];
+		int i = 0;
+		if (args.length > 0 && isValue(args[0]) && Config.containCategory(args[0])) {
+			Config.setCategory(args[0]);
+			i++;
+		}
+		for (; i < args.length; i++) {
+			String arg = args[i];
+			if (Strings.isEmpty(arg)) {
+				continue;
+			}
+			if (arg.charAt(0) != '-') {
+				errors.add(String.format("unexpected argument '%s'", arg));
+				continue;
+			}
+			String argName = arg.substring(1);
+			Integer index = indexes.get(argName);
+			BindField field = index == null ? null : fields[index];
+			String argValue;
+			if (field != null && field.isFlag()) {
+				argValue = i + 1 < args.length && isBoolean(args[i + 1]) ? args[++i] : "1";
+			} else if (i + 1 < args.length && isValue(args[i + 1])) {
+				argValue = args[++i];
+			} else if (field != null) {
+				errors.add(String.format("-%s requires a value", argName));
+				continue;
+			} else {
+				argValue = "1"; // 不在schema裡的參數和Args.load()相同，當成開關
+			}
+			argPairs.add(argName);
+			argPairs.add(argValue);
+			if (field != null && values[index] == null) { // 和Args.get()相同，第一個值優先
+				values[index] = argValue;
+			}
+		}
+
+		Object[] converted = new Object[fields.length];
+		boolean[] assigned = new boolean[fields.length];
+		for (int k = 0; k < fields.length; k++) {
+			BindField field = fields[k];
+			String value = values[k];
+			if (value == null) {
+				value = Args.getByNames(field.paramNames);
+			}
+			if (Strings.isEmpty(value)) {
+				value = field.bind.defaultValue();
+			}
+			if (Strings.isEmpty(value)) {
+				if (field.bind.required()) {
+					errors.add(String.format("-%s is required", field.name));
+				}
+				continue;
+			}
+			try {
+				converted[k] = field.convert(value);
+			} catch (Exception e) {
+				errors.add(String.format("-%s has invalid %s value '%s'", field.name, field.type.getSimpleName(),
+						value));
+				continue;
+			}
+			assigned[k] = true;
+		}
+		if (!errors.isEmpty()) {
+			throw new BindException(errors);
+		}
+		for (int k = 0; k < argPairs.size(); k += 2) {
+			Args.addArg(argPairs.get(k), argPairs.get(k + 1));
+		}
+		for (int k = 0; k < fields.length; k++) {
+			if (assigned[k]) {
+				fields[k].setValue(target, converted[k]);
+			}
+		}
+		return target;
+	}
+
+	private static boolean isValue(String arg) {
+		return arg != null && arg.length() > 0 && arg.charAt(0) != '-';
+	}
+
+	private static boolean isBoolean(String arg) {
+		return "1".equals(arg) || "0".equals(arg) || "true".equalsIgnoreCase(arg) || "false".equalsIgnoreCase(arg);
+	}
+
+	/**
+	 * 列出所有參數的名稱、alias、型別、說明和預設值，必填的參數標示(required)。
+	 */
+	public String usage() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(type.getSimpleName()).append(':');
+		for (BindField field : fields) {
+			sb.append(System.lineSeparator()).append("  ");
+			for (int i = 0; i < field.paramNames.length; i++) {
+				sb.append(i == 0 ? "-" : ", -").append(field.paramNames[i]);
+			}
+			if (!field.isFlag()) {
+				sb.append(" <").append(field.type.getSimpleName()).append('>');
+			}
+			AutoBind bind = field.bind;
+			if (bind.description().length() > 0) {
+				sb.append("  ").append(bind.description());
+			}
+			if (bind.defaultValue().length() > 0) {
+				sb.append(" (default: ").append(bind.defaultValue()).append(')');
+			}
+			if (bind.required()) {
+				sb.append(" (required)");
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -5,8 +5,30 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * 標記要自動綁定的變數，參數名稱為變數名稱，也可以用alias指定其他名稱。
+ *
+ * required、defaultValue、description由ArgSchema使用，Reflect.autoBind()不檢查。
+ *
+ * @author 阿昌
+ */
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ ElementType.FIELD })
 public @interface AutoBind {
 	String[] alias() default {};
+
+	/**
+	 * 必填，指令、cfg和defaultValue都沒有設定時ArgSchema會回報錯誤。
+	 */
+	boolean required() default false;
+
+	/**
+	 * 指令和cfg都沒有設定時使用的值，空字串表示保留變數原本的值。
+	 */
+	String defaultValue() default "";
+
+	/**
+	 * 顯示在ArgSchema.usage()的說明。
+	 */
+	String description() default "";
 }
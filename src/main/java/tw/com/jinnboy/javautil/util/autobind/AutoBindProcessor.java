@@ -0,0 +1,257 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * 編譯時替有@AutoBind變數的類別產生AutoBinder，透過META-INF/services註冊，javac會自動執行。
+ *
+ * 找變數和setter的規則和BindField相同：自己的變數在前、父類別的在後，setXxx()優先於直接設定變數。
+ * 有變數或setter無法從同一個package存取時(private、final或其他package的非public成員)不產生，
+ * 執行時改用反射，結果相同。
+ *
+ * @author 阿昌
+ */
+@SupportedAnnotationTypes("tw.com.jinnboy.javautil.util.autobind.AutoBind")
+public class AutoBindProcessor extends AbstractProcessor {
+	static final String SUFFIX = "$$AutoBinder";
+
+	private final Set<String> generated = new HashSet<>();
+	private int converterCount; // 目前產生的類別裡Converter的數量
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Set<TypeElement> types = new LinkedHashSet<>();
+		for (Element element : roundEnv.getElementsAnnotatedWith(AutoBind.class)) {
+			if (element.getKind() == ElementKind.FIELD) {
+				types.add((TypeElement) element.getEnclosingElement());
+			}
+		}
+		for (TypeElement type : types) {
+			if (generated.add(type.getQualifiedName().toString())) {
+				generate(type);
+			}
+		}
+		return false;
+	}
+
+	private void generate(TypeElement type) {
+		if (!isAccessible(type)) {
+			return;
+		}
+		String packageName = packageOf(type).getQualifiedName().toString();
+		String binderName = binaryName(type) + SUFFIX;
+		converterCount = 0;
+		StringBuilder converters = new StringBuilder();
+		StringBuilder body = new StringBuilder();
+		for (TypeElement checkType = type; checkType != null; checkType = superclass(checkType)) {
+			for (VariableElement field : ElementFilter.fieldsIn(checkType.getEnclosedElements())) {
+				AutoBind bind = field.getAnnotation(AutoBind.class);
+				if (bind != null && !appendField(converters, body, type, field, bind, packageName)) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+							"AutoBinder not generated, field is not accessible: " + field.getSimpleName(), type);
+					return;
+				}
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			sb.append("package ").append(packageName).append(";\n\n");
+		}
+		sb.append("/**\n * 由AutoBindProcessor產生，請勿修改。\n */\n");
+		sb.append("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+		sb.append("public final class ").append(binderName)
+				.append(" implements tw.com.jinnboy.javautil.util.autobind.AutoBinder {\n");
+		sb.append(converters).append('\n');
+		sb.append("\t@Override\n");
+		sb.append("\tpublic void bind(tw.com.jinnboy.javautil.util.autobind.ParamGetter paramGetter, Object obj) {\n");
+		sb.append("\t\t").append(type.getQualifiedName()).append(" target = (").append(type.getQualifiedName())
+				.append(") obj;\n");
+		sb.append("\t\tString value;\n");
+		sb.append(body);
+		sb.append("\t}\n}\n");
+		String sourceName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(sourceName, type);
+			try (Writer writer = file.openWriter()) {
+				writer.write(sb.toString());
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					String.format("AutoBinder(%s) has error: %s", sourceName, e.getMessage()), type);
+		}
+	}
+
+	// 產生一個變數的綁定程式，Converter在類別載入時查好，之後註冊的Converter不影響已載入的類別。無法存取或是有泛型參數的型別時回傳false。
+	private boolean appendField(StringBuilder converters, StringBuilder body, TypeElement type, VariableElement field,
+			AutoBind bind, String packageName) {
+		String fieldName = field.getSimpleName().toString();
+		ExecutableElement setter = findSetter(type, "set" + fieldName, "set" + Reflect.capitalize(fieldName));
+		TypeMirror valueType;
+		if (setter != null) {
+			if (!isAccessible(setter, packageName)) {
+				return false;
+			}
+			valueType = setter.getParameters().get(0).asType();
+		} else {
+			if (!isAccessible(field, packageName) || field.getModifiers().contains(Modifier.FINAL)) {
+				return false;
+			}
+			valueType = field.asType();
+		}
+		if (valueType.getKind() == TypeKind.DECLARED && !((DeclaredType) valueType).getTypeArguments().isEmpty()) {
+			return false; // List<Integer>這類型別需要泛型資訊，使用BindField
+		}
+		String typeName = processingEnv.getTypeUtils().erasure(valueType).toString();
+
+		body.append("\t\tvalue = paramGetter.getParam(").append(literal(fieldName));
+		for (String alias : bind.alias()) {
+			body.append(", ").append(literal(alias));
+		}
+		body.append(");\n");
+		body.append("\t\tif (value != null && value.length() > 0) {\n");
+		body.append("\t\t\ttry {\n");
+		String castType = valueType.getKind().isPrimitive()
+				? processingEnv.getTypeUtils().boxedClass((PrimitiveType) valueType).getQualifiedName().toString()
+				: typeName;
+		int n = converterCount++;
+		converters.append("\tprivate static final tw.com.jinnboy.javautil.util.autobind.Converter<String, ?> converter")
+				.append(n).append(" = tw.com.jinnboy.javautil.util.autobind.Converters.forType(").append(typeName)
+				.append(".class);\n");
+		String converted = "(" + castType + ") converter" + n + ".convert(value)";
+		if (valueType.getKind() == TypeKind.INT || valueType.getKind() == TypeKind.LONG) {
+			// 沒有註冊其他Converter時直接解析，不必轉成包裝類別
+			converters.append("\tprivate static final boolean builtIn").append(n)
+					.append(" = tw.com.jinnboy.javautil.util.autobind.Converters.isBuiltIn(String.class, ")
+					.append(typeName).append(".class);\n");
+			String parse = valueType.getKind() == TypeKind.INT ? "Integer.parseInt" : "Long.parseLong";
+			converted = "(builtIn" + n + " ? " + parse + "(value.trim()) : " + converted + ")";
+		}
+		if (setter != null) {
+			body.append("\t\t\t\ttarget.").append(setter.getSimpleName()).append('(').append(converted).append(");\n");
+		} else {
+			body.append("\t\t\t\ttarget.").append(fieldName).append(" = ").append(converted).append(";\n");
+		}
+		body.append("\t\t\t} catch (Exception e) {\n");
+		body.append("\t\t\t\ttw.com.jinnboy.javautil.util.Log.error(e, \"set failed. field='%s', object=%s, value=%s\", ")
+				.append(literal(fieldName)).append(", target.getClass().getSimpleName(), value);\n");
+		body.append("\t\t\t}\n");
+		body.append("\t\t}\n");
+		return true;
+	}
+
+	// 和Reflect.findSetterMethods()相同的順序：自己的method、介面、父類別，先找第一個名稱，找不到再找第二個。
+	private ExecutableElement findSetter(TypeElement type, String... names) {
+		List<TypeElement> classList = new ArrayList<>();
+		List<ExecutableElement> methods = new ArrayList<>();
+		classList.add(type);
+		for (int i = 0; i < classList.size(); i++) {
+			TypeElement checkType = classList.get(i);
+			for (ExecutableElement method : ElementFilter.methodsIn(checkType.getEnclosedElements())) {
+				if (method.getParameters().size() == 1 && method.getSimpleName().toString().startsWith("set")) {
+					methods.add(method);
+				}
+			}
+			for (TypeMirror interfaceType : checkType.getInterfaces()) {
+				TypeElement interfaceElement = (TypeElement) ((DeclaredType) interfaceType).asElement();
+				if (!classList.contains(interfaceElement)) {
+					classList.add(interfaceElement);
+				}
+			}
+			TypeElement superclass = superclass(checkType);
+			if (superclass != null && !classList.contains(superclass)) {
+				classList.add(superclass);
+			}
+		}
+		for (String name : names) {
+			for (ExecutableElement method : methods) {
+				if (method.getSimpleName().contentEquals(name)) {
+					return method;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static TypeElement superclass(TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+		return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+	}
+
+	// 產生的類別和type在同一個package，type和外層類別都不能是private。
+	private static boolean isAccessible(TypeElement type) {
+		for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+			NestingKind nesting = ((TypeElement) element).getNestingKind();
+			if (element.getModifiers().contains(Modifier.PRIVATE)
+					|| nesting != NestingKind.TOP_LEVEL && nesting != NestingKind.MEMBER) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isAccessible(Element member, String packageName) {
+		Set<Modifier> modifiers = member.getModifiers();
+		if (modifiers.contains(Modifier.PUBLIC)) {
+			return true;
+		}
+		return !modifiers.contains(Modifier.PRIVATE)
+				&& packageOf(member).getQualifiedName().contentEquals(packageName);
+	}
+
+	private static PackageElement packageOf(Element element) {
+		while (!(element instanceof PackageElement)) {
+			element = element.getEnclosingElement();
+		}
+		return (PackageElement) element;
+	}
+
+	// 巢狀類別用$連接，和Class.getName()去掉package後相同。
+	private static String binaryName(TypeElement type) {
+		String name = type.getSimpleName().toString();
+		for (Element element = type.getEnclosingElement(); element instanceof TypeElement; element = element
+				.getEnclosingElement()) {
+			name = element.getSimpleName() + "$" + name;
+		}
+		return name;
+	}
+
+	private static String literal(String str) {
+		return '"' + str.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+}
@@ -0,0 +1,14 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+/**
+ * 編譯時由AutoBindProcessor產生的綁定類別，名稱為「類別名稱$$AutoBinder」，例如Person$$AutoBinder。
+ *
+ * 產生的程式直接呼叫paramGetter.getParam()並設定變數或呼叫setter，不需要反射。
+ * Reflect.autoBind()找得到對應的AutoBinder時直接使用，找不到時才用反射建立BindingPlan。
+ *
+ * @author 阿昌
+ */
+public interface AutoBinder {
+
+	void bind(ParamGetter paramGetter, Object obj);
+}
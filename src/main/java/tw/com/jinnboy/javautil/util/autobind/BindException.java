@@ -0,0 +1,24 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 綁定時的所有錯誤，例如缺少必填的參數或格式錯誤，一次全部列出，不會只看到第一個錯誤。
+ *
+ * @author 阿昌
+ */
+public class BindException extends IllegalArgumentException {
+	private static final long serialVersionUID = 1L;
+
+	private final List<String> errors;
+
+	public BindException(List<String> errors) {
+		super(String.join(System.lineSeparator(), errors));
+		this.errors = Collections.unmodifiableList(errors);
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+}
@@ -0,0 +1,109 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import tw.com.jinnboy.javautil.util.Log;
+
+/**
+ * 一個有@AutoBind的變數：參數名稱(變數名稱加上alias)、型別，以及要透過setter還是直接設定變數。
+ *
+ * @author 阿昌
+ */
+final class BindField {
+	final Field field;
+	final Method setter;
+	final String name;
+	final String[] paramNames;
+	final Class<?> type;
+	final AutoBind bind;
+	private final Setter access;
+	private final Converter<String, ?> converter;
+	private final boolean parseInt; // int變數而且沒有註冊其他String轉Integer的Converter
+
+	private BindField(Field field, Method setter, AutoBind bind) {
+		this.field = field;
+		this.setter = setter;
+		this.bind = bind;
+		this.name = field.getName();
+		String[] alias = bind.alias();
+		if (alias.length == 0) {
+			paramNames = new String[] { name };
+		} else {
+			paramNames = new String[alias.length + 1];
+			paramNames[0] = name;
+			System.arraycopy(alias, 0, paramNames, 1, alias.length);
+		}
+		this.type = setter != null ? setter.getParameterTypes()[0] : field.getType();
+		this.access = Setter.of(field, setter);
+		this.converter = Converters
+				.forType(setter != null ? setter.getGenericParameterTypes()[0] : field.getGenericType());
+		this.parseInt = type == int.class && Converters.isBuiltIn(String.class, int.class);
+	}
+
+	/**
+	 * 找出clazz和父類別所有有@AutoBind的變數，有setXxx()時優先使用setter。
+	 */
+	static List<BindField> of(Class<?> clazz) {
+		List<Method> methods = Reflect.findSetterMethods(clazz);
+		List<BindField> bindFields = new ArrayList<>();
+		for (Field field : Reflect.findFields(clazz)) {
+			AutoBind bind = field.getAnnotation(AutoBind.class);
+			if (bind != null) {
+				String fieldName = field.getName();
+				Method setter = Reflect.findMethodByName(methods, "set" + fieldName,
+						"set" + Reflect.capitalize(fieldName));
+				bindFields.add(new BindField(field, setter, bind));
+			}
+		}
+		return bindFields;
+	}
+
+	/**
+	 * boolean變數在指令裡可以只寫-name，不接值。
+	 */
+	boolean isFlag() {
+		return type == boolean.class || type == Boolean.class;
+	}
+
+	/**
+	 * 轉成變數的型別，格式錯誤或不支援的型別時丟出例外。
+	 */
+	Object convert(String value) throws Exception {
+		return converter.convert(value);
+	}
+
+	/**
+	 * 轉成變數的型別後設定，使用內建Converter的int變數直接解析成int，不必轉成Integer。失敗時印出錯誤，保留原本的值。
+	 */
+	void set(Object obj, String value) {
+		try {
+			if (parseInt) {
+				access.setInt(obj, Integer.parseInt(value.trim()));
+			} else {
+				access.set(obj, converter.convert(value));
+			}
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			Log.error(e, "set failed. field='%s', object=%s, value=%s", setter != null ? setter : field,
+					obj.getClass().getSimpleName(), value);
+		}
+	}
+
+	/**
+	 * 設定已經用convert()轉好的值。
+	 */
+	void setValue(Object obj, Object value) {
+		try {
+			access.set(obj, value);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			Log.error(e, "set failed. field='%s', object=%s, value=%s", setter != null ? setter : field,
+					obj.getClass().getSimpleName(), value);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import java.util.List;
+import java.util.Map;
+
+import tw.com.jinnboy.javautil.util.Strings;
+
+/**
+ * 一個類別的綁定計畫：所有@AutoBind變數的參數名稱、setter或變數和型別，每個類別只找一次。
+ *
+ * 用ClassValue暫存，之後同一個類別的物件綁定時只需要跑過fields陣列，不必再走訪父類別、比對setter名稱。
+ * 類別被卸載時暫存跟著釋放。
+ *
+ * 編譯時有產生「類別名稱$$AutoBinder」時直接使用，不必用反射找變數；fields在ArgSchema需要時才建立。
+ *
+ * @author 阿昌
+ */
+final class BindingPlan {
+	private static final ClassValue<BindingPlan> plans = new ClassValue<BindingPlan>() {
+		@Override
+		protected BindingPlan computeValue(Class<?> type) {
+			return new BindingPlan(type);
+		}
+	};
+
+	final Class<?> type;
+	final AutoBinder binder; // 沒有產生AutoBinder時為null
+	private volatile BindField[] fields;
+
+	private BindingPlan(Class<?> type) {
+		this.type = type;
+		this.binder = loadBinder(type);
+	}
+
+	private static AutoBinder loadBinder(Class<?> type) {
+		try {
+			Class<?> binderClass = Class.forName(type.getName() + AutoBindProcessor.SUFFIX, true,
+					type.getClassLoader());
+			if (AutoBinder.class.isAssignableFrom(binderClass)) {
+				return (AutoBinder) binderClass.getDeclaredConstructor().newInstance();
+			}
+		} catch (ClassNotFoundException e) {
+			// 沒有產生，使用反射
+		} catch (ReflectiveOperationException | LinkageError e) {
+			System.out.println(String.format("AutoBinder(%s) has error: %s", type.getName(), e));
+		}
+		return null;
+	}
+
+	BindField[] fields() {
+		BindField[] current = fields;
+		if (current == null) {
+			List<BindField> list = BindField.of(type);
+			current = list.toArray(new BindField[list.size()]);
+			fields = current;
+		}
+		return current;
+	}
+
+	static BindingPlan of(Class<?> type) {
+		return plans.get(type);
+	}
+
+	void bind(ParamGetter paramGetter, Object obj) {
+		if (binder != null) {
+			binder.bind(paramGetter, obj);
+			return;
+		}
+		for (BindField field : fields()) {
+			String value = paramGetter.getParam(field.paramNames);
+			if (Strings.notEmpty(value)) {
+				field.set(obj, value);
+			}
+		}
+	}
+
+	/**
+	 * 沒有AutoBinder時直接依參數名稱查map，不必建立ParamGetter。
+	 */
+	void bind(final Map<String, String> map, Object obj) {
+		if (binder != null) {
+			binder.bind(new ParamGetter() {
+				@Override
+				public String getParam(String... paramNames) {
+					return first(map, paramNames);
+				}
+			}, obj);
+			return;
+		}
+		for (BindField field : fields()) {
+			String value = first(map, field.paramNames);
+			if (value != null) {
+				field.set(obj, value);
+			}
+		}
+	}
+
+	private static String first(Map<String, String> map, String[] paramNames) {
+		for (String paramName : paramNames) {
+			String value = map.get(paramName);
+			if (Strings.notEmpty(value)) {
+				return value;
+			}
+		}
+		return null;
+	}
+}
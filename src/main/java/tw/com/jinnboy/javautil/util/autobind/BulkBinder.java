@@ -0,0 +1,138 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 大量資料一次綁定成物件，例如CSV的每一列或cfg裡[Person1]、[Person2]...每個section。
+ *
+ * 建立時依欄位名稱(header)找出每個@AutoBind變數對應的欄位位置，之後每一列只需要用位置取值，不必再查Map。
+ * bindAll()用parallel stream在多個核心同時建立和綁定物件，結果的順序和輸入相同；只有一個核心時依序處理，省去切分和合併的成本。
+ * 變數和Converter使用和Reflect.autoBind()相同的BindingPlan，類別需要有不帶參數的建構子。
+ *
+ * <pre>
+ * BulkBinder&lt;Person&gt; binder = BulkBinder.of(Person.class, "name", "age");
+ * List&lt;Person&gt; persons = binder.bindAll(rows); // rows: Stream&lt;String[]&gt;或Iterator&lt;String[]&gt;
+ * </pre>
+ *
+ * 建立後不會改變，可以在多個執行緒共用。
+ *
+ * @author 阿昌
+ */
+public final class BulkBinder<T> {
+	private final Constructor<T> constructor;
+	private final BindField[] fields; // 有對應欄位的變數
+	private final int[][] columns; // columns[i]為fields[i]的參數名稱依序對應到的欄位位置
+
+	private BulkBinder(Class<T> type, String[] header) {
+		try {
+			constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+		} catch (NoSuchMethodException | RuntimeException e) {
+			throw new IllegalArgumentException(type.getName() + " has no accessible no-arg constructor", e);
+		}
+		BindField[] all = BindingPlan.of(type).fields();
+		BindField[] matched = new BindField[all.length];
+		int[][] matchedColumns = new int[all.length][];
+		int count = 0;
+		for (BindField field : all) {
+			int[] indexes = new int[field.paramNames.length];
+			int size = 0;
+			for (String paramName : field.paramNames) {
+				for (int i = 0; i < header.length; i++) {
+					if (paramName.equals(header[i])) {
+						indexes[size++] = i;
+						break;
+					}
+				}
+			}
+			if (size > 0) {
+				matched[count] = field;
+				matchedColumns[count++] = size == indexes.length ? indexes : Arrays.copyOf(indexes, size);
+			}
+		}
+		this.fields = Arrays.copyOf(matched, count);
+		this.columns = Arrays.copyOf(matchedColumns, count);
+	}
+
+	/**
+	 * @param header 每一列資料的欄位名稱，和@AutoBind的變數名稱或alias相同的欄位才會綁定
+	 */
+	public static <T> BulkBinder<T> of(Class<T> type, String... header) {
+		return new BulkBinder<>(type, header.clone());
+	}
+
+	/**
+	 * 建立一個物件並綁定row的值，空字串和超出row長度的欄位略過。
+	 */
+	public T bind(String[] row) {
+		T obj = newInstance();
+		for (int i = 0; i < fields.length; i++) {
+			for (int column : columns[i]) {
+				String value = column < row.length ? row[column] : null;
+				if (value != null && value.length() > 0) {
+					fields[i].set(obj, value);
+					break;
+				}
+			}
+		}
+		return obj;
+	}
+
+	/**
+	 * 平行綁定所有資料列，回傳的順序和rows相同。
+	 */
+	public List<T> bindAll(Stream<String[]> rows) {
+		return parallel(rows).map(new Function<String[], T>() {
+			@Override
+			public T apply(String[] row) {
+				return bind(row);
+			}
+		}).collect(Collectors.toList());
+	}
+
+	/**
+	 * 從iterator分批取出資料列平行綁定，適合一邊讀檔一邊處理。
+	 */
+	public List<T> bindAll(Iterator<String[]> rows) {
+		return bindAll(StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED), true));
+	}
+
+	/**
+	 * 平行綁定所有Map，例如cfg每個section的設定。沒有固定欄位時使用，依參數名稱查Map。
+	 */
+	public static <T> List<T> bindMaps(final Class<T> type, Stream<Map<String, String>> records) {
+		final BulkBinder<T> binder = of(type);
+		final BindingPlan plan = BindingPlan.of(type);
+		return parallel(records).map(new Function<Map<String, String>, T>() {
+			@Override
+			public T apply(Map<String, String> record) {
+				T obj = binder.newInstance();
+				plan.bind(record, obj);
+				return obj;
+			}
+		}).collect(Collectors.toList());
+	}
+
+	private static <E> Stream<E> parallel(Stream<E> stream) {
+		return ForkJoinPool.getCommonPoolParallelism() > 1 ? stream.parallel() : stream.sequential();
+	}
+
+	private T newInstance() {
+		try {
+			return constructor.newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Failed to create " + constructor.getDeclaringClass().getName(), e);
+		}
+	}
+}
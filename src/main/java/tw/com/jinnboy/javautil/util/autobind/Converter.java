@@ -0,0 +1,12 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+/**
+ * 把S型別的值轉成T型別，格式錯誤時丟出例外，由呼叫的地方回報錯誤。
+ *
+ * @author 阿昌
+ * @see Converters
+ */
+public interface Converter<S, T> {
+
+	T convert(S value) throws Exception;
+}
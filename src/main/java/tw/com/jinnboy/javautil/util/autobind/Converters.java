@@ -0,0 +1,452 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tw.com.jinnboy.javautil.util.Dates;
+import tw.com.jinnboy.javautil.util.config.ConfigHandle;
+
+/**
+ * 型別轉換的註冊表，以(來源型別, 目標型別)查出Converter。
+ *
+ * 綁定時每個變數在建立BindingPlan時只查一次，之後直接呼叫Converter，不必每次跑一長串型別判斷。
+ * 格式錯誤時Converter丟出例外，由BindField、ArgSchema回報，不會默默留下原本的字串。
+ *
+ * 內建String轉成基本型別和包裝類別、Date、LocalDate、LocalDateTime、BigDecimal、BigInteger、Duration、enum，
+ * 陣列和List、Set、Collection以逗號分隔每個元素；Number轉成其他數字型別。其他型別可以用register()加入。
+ * 來源是String時，"null"字串轉成null。String轉boolean和原本的Reflect.convert()相同，只有1和true(不分大小寫)為true，
+ * 其他值都是false，不會丟出例外，既有cfg裡的2、yes等值結果不變。
+ *
+ * BindingPlan和編譯時產生的AutoBinder在第一次綁定該類別時就查好Converter，之後不會再查，
+ * 所以register()必須在第一次綁定前呼叫(例如程式啟動時)，已經綁定過的類別不會套用新註冊的Converter。
+ *
+ * @author 阿昌
+ */
+public final class Converters {
+	private static final Map<Class<?>, Map<Class<?>, Converter<?, ?>>> registered = new ConcurrentHashMap<>();
+	private static final Map<Class<?>, Map<Class<?>, Converter<?, ?>>> resolved = new ConcurrentHashMap<>();
+	private static final Map<Class<?>, Map<Class<?>, Converter<?, ?>>> builtIn = new ConcurrentHashMap<>();
+	private static final Converter<Object, Object> NONE = new Converter<Object, Object>() {
+		@Override
+		public Object convert(Object value) {
+			return null;
+		}
+	};
+
+	static {
+		registerDefaults();
+		for (Map.Entry<Class<?>, Map<Class<?>, Converter<?, ?>>> entry : registered.entrySet()) {
+			builtIn.put(entry.getKey(), new ConcurrentHashMap<>(entry.getValue()));
+		}
+	}
+
+	private Converters() {
+	}
+
+	/**
+	 * 加入或取代source轉成target的Converter，target是包裝類別時基本型別也一併使用。
+	 * 請在第一次綁定使用target的類別之前呼叫。
+	 */
+	public static <S, T> void register(Class<S> source, Class<T> target, Converter<? super S, ? extends T> converter) {
+		Map<Class<?>, Converter<?, ?>> map = tableOf(registered, source);
+		map.put(target, converter);
+		Class<?> primitive = MethodType.methodType(target).unwrap().returnType();
+		if (primitive != target) {
+			map.put(primitive, converter);
+		}
+		resolved.clear();
+	}
+
+	/**
+	 * source轉成target仍是內建的Converter，沒有被register()換掉時回傳true。
+	 * 綁定int、long時用來判斷能不能直接呼叫Integer.parseInt()、Long.parseLong()。
+	 */
+	public static boolean isBuiltIn(Class<?> source, Class<?> target) {
+		Map<Class<?>, Converter<?, ?>> current = registered.get(source);
+		Map<Class<?>, Converter<?, ?>> original = builtIn.get(source);
+		return current != null && original != null && original.containsKey(target)
+				&& current.get(target) == original.get(target);
+	}
+
+	private static Map<Class<?>, Converter<?, ?>> tableOf(Map<Class<?>, Map<Class<?>, Converter<?, ?>>> table,
+			Class<?> source) {
+		Map<Class<?>, Converter<?, ?>> map = table.get(source);
+		if (map == null) {
+			map = new ConcurrentHashMap<>();
+			Map<Class<?>, Converter<?, ?>> previous = table.putIfAbsent(source, map);
+			if (previous != null) {
+				map = previous;
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * 找不到時回傳null。
+	 */
+	@SuppressWarnings("unchecked")
+	public static <S, T> Converter<S, T> find(Class<S> source, Class<T> target) {
+		Map<Class<?>, Converter<?, ?>> map = tableOf(resolved, source);
+		Converter<?, ?> converter = map.get(target);
+		if (converter == null) {
+			converter = resolve(source, target);
+			map.put(target, converter == null ? NONE : converter);
+		}
+		return converter == NONE ? null : (Converter<S, T>) converter;
+	}
+
+	/**
+	 * 把字串轉成type，type可以是List&lt;Integer&gt;這類有泛型的集合。不支援的型別在轉換時丟出IllegalArgumentException。
+	 */
+	@SuppressWarnings("unchecked")
+	public static Converter<String, ?> forType(final Type type) {
+		if (type instanceof Class) {
+			Converter<String, ?> converter = find(String.class, (Class<Object>) type);
+			return converter != null ? converter : unsupported(type);
+		} else if (type instanceof ParameterizedType) {
+			Class<?> raw = (Class<?>) ((ParameterizedType) type).getRawType();
+			if (Collection.class.isAssignableFrom(raw)) {
+				return collection(raw, forType(((ParameterizedType) type).getActualTypeArguments()[0]));
+			}
+			return forType(raw);
+		} else if (type instanceof GenericArrayType) {
+			Type component = ((GenericArrayType) type).getGenericComponentType();
+			return array(erasure(component), forType(component));
+		}
+		return forType(erasure(type));
+	}
+
+	private static Class<?> erasure(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		} else if (type instanceof GenericArrayType) {
+			return Array.newInstance(erasure(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		} else if (type instanceof TypeVariable) {
+			return erasure(((TypeVariable<?>) type).getBounds()[0]);
+		} else if (type instanceof WildcardType) {
+			return erasure(((WildcardType) type).getUpperBounds()[0]);
+		}
+		return Object.class;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Converter<?, ?> resolve(Class<?> source, Class<?> target) {
+		Converter<?, ?> converter = null;
+		if (source != String.class && MethodType.methodType(target).wrap().returnType().isAssignableFrom(source)) {
+			return identity();
+		}
+		for (Class<?> checkClass = source; checkClass != null && converter == null; checkClass = checkClass
+				.getSuperclass()) {
+			Map<Class<?>, Converter<?, ?>> map = registered.get(checkClass);
+			converter = map == null ? null : map.get(target);
+		}
+		if (converter == null && source == String.class) {
+			if (target.isEnum()) {
+				converter = enumConverter((Class<Enum>) target);
+			} else if (target.isArray()) {
+				converter = array(target.getComponentType(), forType(target.getComponentType()));
+			} else if (Collection.class.isAssignableFrom(target)) {
+				converter = collection(target, find(String.class, String.class));
+			}
+		}
+		if (converter == null && MethodType.methodType(target).wrap().returnType().isAssignableFrom(source)) {
+			converter = identity();
+		}
+		if (converter != null && source == String.class) {
+			converter = nullable((Converter<String, ?>) converter, target);
+		}
+		return converter;
+	}
+
+	private static Converter<Object, Object> identity() {
+		return new Converter<Object, Object>() {
+			@Override
+			public Object convert(Object value) {
+				return value;
+			}
+		};
+	}
+
+	private static Converter<String, Object> nullable(final Converter<String, ?> converter, final Class<?> target) {
+		return new Converter<String, Object>() {
+			@Override
+			public Object convert(String value) throws Exception {
+				if ("null".equalsIgnoreCase(value)) {
+					if (target.isPrimitive()) {
+						throw new IllegalArgumentException("null is not a valid " + target.getSimpleName());
+					}
+					return null;
+				}
+				return converter.convert(value);
+			}
+		};
+	}
+
+	private static Converter<String, Object> unsupported(final Type type) {
+		return new Converter<String, Object>() {
+			@Override
+			public Object convert(String value) {
+				throw new IllegalArgumentException("No converter for " + type.getTypeName());
+			}
+		};
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static Converter<String, Object> enumConverter(final Class<Enum> type) {
+		return new Converter<String, Object>() {
+			@Override
+			public Object convert(String value) {
+				String name = value.trim();
+				for (Enum constant : type.getEnumConstants()) {
+					if (constant.name().equalsIgnoreCase(name)) {
+						return constant;
+					}
+				}
+				StringBuilder names = new StringBuilder();
+				for (Enum constant : type.getEnumConstants()) {
+					names.append(names.length() == 0 ? "" : ", ").append(constant.name());
+				}
+				throw new IllegalArgumentException(String.format("%s is not one of [%s]", value, names));
+			}
+		};
+	}
+
+	private static Converter<String, Object> array(final Class<?> componentType, final Converter<String, ?> element) {
+		return new Converter<String, Object>() {
+			@Override
+			public Object convert(String value) throws Exception {
+				String[] items = split(value);
+				Object array = Array.newInstance(componentType, items.length);
+				for (int i = 0; i < items.length; i++) {
+					Array.set(array, i, element.convert(items[i]));
+				}
+				return array;
+			}
+		};
+	}
+
+	private static Converter<String, Object> collection(final Class<?> type, final Converter<String, ?> element) {
+		final boolean sorted = type.isAssignableFrom(TreeSet.class) && !type.isAssignableFrom(LinkedHashSet.class);
+		final boolean set = !type.isAssignableFrom(ArrayList.class);
+		if (set && !type.isAssignableFrom(LinkedHashSet.class) && !sorted) {
+			return unsupported(type);
+		}
+		return new Converter<String, Object>() {
+			@Override
+			public Object convert(String value) throws Exception {
+				String[] items = split(value);
+				Collection<Object> collection = sorted ? new TreeSet<>()
+						: set ? new LinkedHashSet<>() : new ArrayList<>(items.length);
+				for (String item : items) {
+					collection.add(element.convert(item));
+				}
+				return collection;
+			}
+		};
+	}
+
+	// 以逗號分隔，去掉前後空白，空字串表示沒有元素。
+	private static String[] split(String value) {
+		if (value.trim().isEmpty()) {
+			return new String[0];
+		}
+		String[] items = value.split(",");
+		for (int i = 0; i < items.length; i++) {
+			items[i] = items[i].trim();
+		}
+		return items;
+	}
+
+	private static void registerDefaults() {
+		register(String.class, String.class, new Converter<String, String>() {
+			@Override
+			public String convert(String value) {
+				return value;
+			}
+		});
+		register(String.class, Integer.class, new Converter<String, Integer>() {
+			@Override
+			public Integer convert(String value) {
+				return Integer.parseInt(value.trim());
+			}
+		});
+		register(String.class, Long.class, new Converter<String, Long>() {
+			@Override
+			public Long convert(String value) {
+				return Long.parseLong(value.trim());
+			}
+		});
+		register(String.class, Short.class, new Converter<String, Short>() {
+			@Override
+			public Short convert(String value) {
+				return Short.parseShort(value.trim());
+			}
+		});
+		register(String.class, Byte.class, new Converter<String, Byte>() {
+			@Override
+			public Byte convert(String value) {
+				return Byte.parseByte(value.trim());
+			}
+		});
+		register(String.class, Double.class, new Converter<String, Double>() {
+			@Override
+			public Double convert(String value) {
+				return Double.parseDouble(value);
+			}
+		});
+		register(String.class, Float.class, new Converter<String, Float>() {
+			@Override
+			public Float convert(String value) {
+				return Float.parseFloat(value);
+			}
+		});
+		register(String.class, Boolean.class, new Converter<String, Boolean>() {
+			@Override
+			public Boolean convert(String value) {
+				String str = value.trim();
+				return "1".equals(str) || "true".equalsIgnoreCase(str);
+			}
+		});
+		register(String.class, Character.class, new Converter<String, Character>() {
+			@Override
+			public Character convert(String value) {
+				if (value.isEmpty()) {
+					throw new IllegalArgumentException("empty string is not a char");
+				}
+				return value.charAt(0);
+			}
+		});
+		register(String.class, Date.class, new Converter<String, Date>() {
+			@Override
+			public Date convert(String value) {
+				Date date = Dates.parse(value);
+				if (date == null) {
+					throw new IllegalArgumentException(value + " is not a date");
+				}
+				return date;
+			}
+		});
+		register(String.class, LocalDate.class, new Converter<String, LocalDate>() {
+			@Override
+			public LocalDate convert(String value) {
+				try {
+					return LocalDate.parse(value.trim());
+				} catch (DateTimeParseException e) {
+					Date date = Dates.parse(value);
+					if (date == null) {
+						throw e;
+					}
+					return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+				}
+			}
+		});
+		register(String.class, LocalDateTime.class, new Converter<String, LocalDateTime>() {
+			@Override
+			public LocalDateTime convert(String value) {
+				try {
+					return LocalDateTime.parse(value.trim());
+				} catch (DateTimeParseException e) {
+					Date date = Dates.parse(value);
+					if (date == null) {
+						throw e;
+					}
+					return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+				}
+			}
+		});
+		register(String.class, BigDecimal.class, new Converter<String, BigDecimal>() {
+			@Override
+			public BigDecimal convert(String value) {
+				return new BigDecimal(value.trim());
+			}
+		});
+		register(String.class, BigInteger.class, new Converter<String, BigInteger>() {
+			@Override
+			public BigInteger convert(String value) {
+				return new BigInteger(value.trim());
+			}
+		});
+		register(String.class, Duration.class, new Converter<String, Duration>() {
+			@Override
+			public Duration convert(String value) {
+				return ConfigHandle.parseDuration(value);
+			}
+		});
+
+		register(Number.class, Integer.class, new Converter<Number, Integer>() {
+			@Override
+			public Integer convert(Number value) {
+				return value.intValue();
+			}
+		});
+		register(Number.class, Long.class, new Converter<Number, Long>() {
+			@Override
+			public Long convert(Number value) {
+				return value.longValue();
+			}
+		});
+		register(Number.class, Short.class, new Converter<Number, Short>() {
+			@Override
+			public Short convert(Number value) {
+				return value.shortValue();
+			}
+		});
+		register(Number.class, Byte.class, new Converter<Number, Byte>() {
+			@Override
+			public Byte convert(Number value) {
+				return value.byteValue();
+			}
+		});
+		register(Number.class, Double.class, new Converter<Number, Double>() {
+			@Override
+			public Double convert(Number value) {
+				return value.doubleValue();
+			}
+		});
+		register(Number.class, Float.class, new Converter<Number, Float>() {
+			@Override
+			public Float convert(Number value) {
+				return value.floatValue();
+			}
+		});
+		register(Number.class, Boolean.class, new Converter<Number, Boolean>() {
+			@Override
+			public Boolean convert(Number value) {
+				return value.intValue() != 0;
+			}
+		});
+		register(Number.class, Character.class, new Converter<Number, Character>() {
+			@Override
+			public Character convert(Number value) {
+				return (char) value.intValue();
+			}
+		});
+		register(Number.class, BigDecimal.class, new Converter<Number, BigDecimal>() {
+			@Override
+			public BigDecimal convert(Number value) {
+				return new BigDecimal(value.toString());
+			}
+		});
+	}
+}
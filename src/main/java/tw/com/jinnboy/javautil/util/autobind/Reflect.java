@@ -4,14 +4,11 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import tw.com.jinnboy.javautil.util.Dates;
 import tw.com.jinnboy.javautil.util.Log;
-import tw.com.jinnboy.javautil.util.Strings;
 
 public class Reflect {
 
@@ -19,49 +16,11 @@ public class Reflect {
 	}
 
 	public static void autoBind(Map<String, String> map, Object obj) {
-		ParamGetter paramGetter = new ParamGetter() {
-			@Override
-			public String getParam(String... paramNames) {
-				for (String paramName : paramNames) {
-					String value = map.get(paramName);
-					if (Strings.notEmpty(value)) {
-						return value;
-					}
-				}
-				return null;
-			}
-		};
-		autoBind(paramGetter, obj);
+		BindingPlan.of(obj.getClass()).bind(map, obj);
 	}
 
 	public static void autoBind(ParamGetter paramGetter, Object obj) {
-		Class<?> clazz = obj.getClass();
-		List<Field> fields = Reflect.findFields(clazz);
-		List<Method> methods = Reflect.findSetterMethods(clazz);
-		for (Field field : fields) {
-			if (field.isAnnotationPresent(AutoBind.class)) {
-				AutoBind argField = field.getAnnotation(AutoBind.class);
-				String fieldName = field.getName();
-				String[] alias = argField.alias();
-				String[] paramNames;
-				if (alias.length == 0) {
-					paramNames = new String[] { fieldName };
-				} else {
-					paramNames = new String[alias.length + 1];
-					paramNames[0] = fieldName;
-					System.arraycopy(alias, 0, paramNames, 1, alias.length);
-				}
-				String argValue = paramGetter.getParam(paramNames);
-				if (Strings.notEmpty(argValue)) {
-					Method setterMethod = findMethodByName(methods, "set" + fieldName, "set" + capitalize(fieldName));
-					if (setterMethod != null) {
-						Reflect.methodSet(setterMethod, obj, argValue);
-					} else {
-						Reflect.fieldSet(field, obj, argValue);
-					}
-				}
-			}
-		}
+		BindingPlan.of(obj.getClass()).bind(paramGetter, obj);
 	}
 
 	public static List<Field> findFields(final Class<?> clazz) {
@@ -190,67 +149,18 @@ public class Reflect {
 		}
 	}
 
-	// 嘗試針對常見的類型做轉換，否則返回value本身。
+	// 嘗試針對常見的類型做轉換，否則返回value本身。需要知道轉換失敗的原因時請直接使用Converters。
+	@SuppressWarnings("unchecked")
 	public static Object convert(Object value, Class<?> type) {
-		try {
-			if (value == null) {
-				return type == boolean.class ? false : type.isPrimitive() ? 0 : null;
-			}
-			Class<?> valueType = value.getClass();
-			// String要判斷內容(null字串或其它內容)，先不要return String。
-			if (valueType != String.class && (valueType == type || type.isAssignableFrom(valueType))) {
-				return value;
-			}
-			if (value instanceof Number) {
-				if (type == int.class || type == Integer.class) {
-					return ((Number) value).intValue();
-				} else if (type == long.class || type == Long.class) {
-					return ((Number) value).longValue();
-				} else if (type == short.class || type == Short.class) {
-					return ((Number) value).shortValue();
-				} else if (type == double.class || type == Double.class) {
-					return ((Number) value).doubleValue();
-				} else if (type == float.class || type == Float.class) {
-					return ((Number) value).floatValue();
-				} else if (type == byte.class || type == Byte.class) {
-					return ((Number) value).byteValue();
-				} else if (type == boolean.class || type == Boolean.class) {
-					return ((Number) value).intValue() != 0;
-				} else if (type == char.class || type == Character.class) {
-					return (char) (((Number) value).intValue());
-				}
-			}
-			if (value instanceof String) {
-				String str = value.toString();
-				if ("null".equalsIgnoreCase(str)) {
-					return null;
-				}
-				if (type == String.class) {
-					return value;
-				} else if (type == int.class || type == Integer.class) {
-					return Integer.parseInt(str);
-				} else if (type == long.class || type == Long.class) {
-					return Long.parseLong(str);
-				} else if (type == short.class || type == Short.class) {
-					return Short.parseShort(str);
-				} else if (type == double.class || type == Double.class) {
-					return Double.parseDouble(str);
-				} else if (type == float.class || type == Float.class) {
-					return Float.parseFloat(str);
-				} else if (type == byte.class || type == Byte.class) {
-					return Byte.parseByte(str);
-				} else if (type == boolean.class || type == Boolean.class) {
-					return "1".equals(str) || "true".equalsIgnoreCase(str);
-				} else if (type == char.class || type == Character.class) {
-					return str.length() > 0 ? str.charAt(0) : value;
-				} else if (Date.class.isAssignableFrom(type)) {
-					Date date = Dates.parse(str);
-					if (date != null) {
-						return date;
-					}
-				}
+		if (value == null) {
+			return type == boolean.class ? false : type.isPrimitive() ? 0 : null;
+		}
+		Converter<Object, ?> converter = (Converter<Object, ?>) Converters.find(value.getClass(), type);
+		if (converter != null) {
+			try {
+				return converter.convert(value);
+			} catch (Exception e) {
 			}
-		} catch (Exception e) {
 		}
 		return value;
 	}
@@ -0,0 +1,136 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 設定一個變數的值，建立BindingPlan時產生，之後每次綁定直接呼叫。
+ *
+ * setter方法用LambdaMetafactory產生BiConsumer，int的setter產生ObjIntConsumer，
+ * JIT之後和直接呼叫setXxx()差不多快，int也不必先轉成Integer。
+ * 沒有setter時用MethodHandle設定變數，都無法建立時(例如final變數或其他module的類別)才用反射。
+ *
+ * @author 阿昌
+ */
+abstract class Setter {
+
+	abstract void set(Object obj, Object value) throws Throwable;
+
+	/**
+	 * int變數不轉成Integer直接設定，其他型別的Setter轉成Integer後呼叫set()。
+	 */
+	void setInt(Object obj, int value) throws Throwable {
+		set(obj, value);
+	}
+
+	static Setter of(Field field, Method method) {
+		try {
+			if (method != null) {
+				return method.getDeclaringClass().isInterface() ? handle(method, null) : lambda(method);
+			} else if (!Modifier.isFinal(field.getModifiers()) && !Modifier.isStatic(field.getModifiers())) {
+				return handle(null, field);
+			}
+		} catch (Throwable e) {
+			// 改用反射
+		}
+		return reflect(field, method);
+	}
+
+	private static MethodHandles.Lookup lookup(Class<?> clazz) throws IllegalAccessException {
+		return MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Setter lambda(Method method) throws Throwable {
+		Class<?> owner = method.getDeclaringClass();
+		Class<?> type = method.getParameterTypes()[0];
+		MethodHandles.Lookup lookup = lookup(owner);
+		MethodHandle target = lookup.unreflect(method);
+		if (type == int.class) {
+			CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(ObjIntConsumer.class),
+					MethodType.methodType(void.class, Object.class, int.class), target,
+					MethodType.methodType(void.class, owner, int.class));
+			final ObjIntConsumer<Object> consumer = (ObjIntConsumer<Object>) site.getTarget().invoke();
+			return new Setter() {
+				@Override
+				void set(Object obj, Object value) {
+					consumer.accept(obj, (Integer) value);
+				}
+
+				@Override
+				void setInt(Object obj, int value) {
+					consumer.accept(obj, value);
+				}
+			};
+		}
+		Class<?> boxed = MethodType.methodType(type).wrap().returnType();
+		CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+				MethodType.methodType(void.class, Object.class, Object.class), target,
+				MethodType.methodType(void.class, owner, boxed));
+		final BiConsumer<Object, Object> consumer = (BiConsumer<Object, Object>) site.getTarget().invoke();
+		return new Setter() {
+			@Override
+			void set(Object obj, Object value) {
+				consumer.accept(obj, value);
+			}
+		};
+	}
+
+	private static Setter handle(Method method, Field field) throws IllegalAccessException {
+		Class<?> owner = method != null ? method.getDeclaringClass() : field.getDeclaringClass();
+		MethodHandle target = method != null ? lookup(owner).unreflect(method) : lookup(owner).unreflectSetter(field);
+		target = target.asType(target.type().changeReturnType(void.class));
+		if (target.type().parameterType(1) == int.class) {
+			final MethodHandle intHandle = target.asType(MethodType.methodType(void.class, Object.class, int.class));
+			final MethodHandle handle = target.asType(MethodType.methodType(void.class, Object.class, Object.class));
+			return new Setter() {
+				@Override
+				void set(Object obj, Object value) throws Throwable {
+					handle.invokeExact(obj, value);
+				}
+
+				@Override
+				void setInt(Object obj, int value) throws Throwable {
+					intHandle.invokeExact(obj, value);
+				}
+			};
+		}
+		final MethodHandle handle = target.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		return new Setter() {
+			@Override
+			void set(Object obj, Object value) throws Throwable {
+				handle.invokeExact(obj, value);
+			}
+		};
+	}
+
+	private static Setter reflect(final Field field, final Method method) {
+		try {
+			if (method != null) {
+				method.setAccessible(true);
+			} else {
+				field.setAccessible(true);
+			}
+		} catch (RuntimeException e) {
+			// 無法開放存取時，set()會丟出IllegalAccessException
+		}
+		return new Setter() {
+			@Override
+			void set(Object obj, Object value) throws Throwable {
+				if (method != null) {
+					method.invoke(obj, value);
+				} else {
+					field.set(obj, value);
+				}
+			}
+		};
+	}
+}
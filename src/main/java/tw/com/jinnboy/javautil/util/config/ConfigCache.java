@@ -0,0 +1,387 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * cfg檔的binary快取，放在cfg檔旁邊，檔名為cfg檔名加上「.bin」，例如project.cfg.bin。
+ *
+ * load()先檢查快取記錄的cfg檔大小、修改時間和CRC32，都相同時直接mmap快取檔，
+ * 查詢時用hash index找到位置再讀出字串，不需要重新解析cfg檔，也不會在啟動時建立所有的String。
+ * 快取不存在或已經過期時改用ConfigParser解析，並重新寫出快取；寫入失敗(例如目錄沒有寫入權限)只印出錯誤，不影響載入。
+ *
+ * 快取先寫到同一個目錄下不重複的暫存檔再一次換掉，已經mmap舊快取的程式不會讀到寫到一半的內容，
+ * 多個程式同時寫出快取也不會互相蓋到對方的暫存檔。header另外記錄header之後所有內容的CRC32，
+ * open()時一併檢查，快取檔損毀時改回解析cfg檔。
+ *
+ * 檔案格式(big-endian)：
+ * [header 64 bytes]  magic、版本、cfg大小、修改時間、CRC32，下面各表的筆數、快取檔長度和header之後內容的CRC32
+ * [section表]        每筆20 bytes：名稱、第一個param、param數、第一行other line、other line數
+ * [param表]          每筆12 bytes：所屬section、名稱、值，值有${param}時最高的bit為1
+ * [other line表]     每筆4 bytes：文字
+ * [section hash]     open addressing，存section編號+1，0表示空位
+ * [param hash]       open addressing，key為section和param名稱，存param編號+1
+ * [字串表]           [int 長度][UTF-8]，相同的字串只存一次，上面各表的字串都是字串表裡的位置
+ *
+ * @author 阿昌
+ */
+public final class ConfigCache {
+	private static final int MAGIC = 0x4A434647; // JCFG
+	private static final int VERSION = 3;
+	private static final int HEADER_SIZE = 64;
+	private static final int SECTION_SIZE = 20;
+	private static final int PARAM_SIZE = 12;
+	private static final int TEMPLATE = 0x80000000; // 值的字串位置加上這個bit表示有${param}
+	private static final String SUFFIX = ".bin";
+
+	private ConfigCache() {
+	}
+
+	public static Path cachePath(Path path) {
+		return path.resolveSibling(path.getFileName() + SUFFIX);
+	}
+
+	/**
+	 * 載入cfg檔，快取有效時直接使用快取，否則解析cfg檔並重新寫出快取。
+	 */
+	public static ConfigSnapshot load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE - 8) {
+				throw new IOException("Config file is too large: " + size);
+			}
+			long modified = Files.getLastModifiedTime(path).toMillis();
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			CRC32 crc = new CRC32();
+			crc.update(mapped.duplicate()); // 直接對mmap計算，快取有效時不必把cfg檔複製到heap
+			Path cachePath = cachePath(path);
+			ConfigSnapshot snapshot = open(path, cachePath, size, modified, crc.getValue());
+			if (snapshot == null) {
+				byte[] data = new byte[(int) size];
+				mapped.get(data);
+				snapshot = ConfigParser.parse(path, data);
+				try {
+					write(snapshot, cachePath, size, modified, crc.getValue());
+				} catch (IOException | RuntimeException e) {
+					System.out.println(String.format("ConfigCache.write(%s) has error: %s", cachePath, e));
+				}
+			}
+			return snapshot;
+		}
+	}
+
+	/**
+	 * mmap快取檔，快取不存在、格式不符、記錄的cfg檔大小、修改時間、CRC32不同，或快取內容的CRC32不符時回傳null。
+	 */
+	static ConfigSnapshot open(Path path, Path cachePath, long size, long modified, long crc) throws IOException {
+		MappedByteBuffer buf;
+		try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+			long length = channel.size();
+			if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+				return null;
+			}
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || buf.getLong(8) != size
+				|| buf.getLong(16) != modified || buf.getLong(24) != crc || buf.getInt(56) != buf.capacity()
+				|| buf.getInt(60) != bodyCrc(buf)) {
+			return null;
+		}
+		return new MappedSnapshot(path, buf);
+	}
+
+	/**
+	 * 把snapshot寫成快取檔。
+	 */
+	static void write(ConfigSnapshot snapshot, Path cachePath, long size, long modified, long crc)
+			throws IOException {
+		List<String> sectionNames = new ArrayList<>(snapshot.getSections());
+		Collections.sort(sectionNames);
+		StringTable strings = new StringTable();
+		int paramCount = 0;
+		int lineCount = 0;
+		for (String section : sectionNames) {
+			paramCount += snapshot.getSection(section).size();
+			lineCount += snapshot.getOtherLines(section).size();
+		}
+		int sectionSlots = slots(sectionNames.size());
+		int paramSlots = slots(paramCount);
+		int[] sectionTable = new int[sectionNames.size() * 5];
+		int[] paramTable = new int[paramCount * 3];
+		int[] lineTable = new int[lineCount];
+		int[] sectionHash = new int[sectionSlots];
+		int[] paramHash = new int[paramSlots];
+		int p = 0;
+		int l = 0;
+		for (int s = 0; s < sectionNames.size(); s++) {
+			String section = sectionNames.get(s);
+			Map<String, Object> params = snapshot.getSection(section);
+			List<String> lines = snapshot.getOtherLines(section);
+			sectionTable[s * 5] = strings.add(section);
+			sectionTable[s * 5 + 1] = p;
+			sectionTable[s * 5 + 2] = params.size();
+			sectionTable[s * 5 + 3] = l;
+			sectionTable[s * 5 + 4] = lines.size();
+			insert(sectionHash, hash(section), s);
+			for (Map.Entry<String, Object> entry : params.entrySet()) {
+				paramTable[p * 3] = s;
+				paramTable[p * 3 + 1] = strings.add(entry.getKey());
+				paramTable[p * 3 + 2] = strings.add(entry.getValue().toString())
+						| (entry.getValue() instanceof ConfigTemplate ? TEMPLATE : 0);
+				insert(paramHash, hash(section, entry.getKey()), p);
+				p++;
+			}
+			for (String line : lines) {
+				lineTable[l++] = strings.add(line);
+			}
+		}
+		long length = (long) HEADER_SIZE + (sectionTable.length + paramTable.length + lineTable.length
+				+ sectionSlots + paramSlots) * 4L + strings.length;
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Config cache is too large: " + length);
+		}
+		ByteBuffer buf = ByteBuffer.allocate((int) length);
+		buf.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified).putLong(crc);
+		buf.putInt(sectionNames.size()).putInt(paramCount).putInt(lineCount).putInt(sectionSlots).putInt(paramSlots);
+		buf.putInt(strings.length).putInt((int) length).putInt(0); // 內容的CRC32最後再補
+		for (int[] table : new int[][] { sectionTable, paramTable, lineTable, sectionHash, paramHash }) {
+			buf.asIntBuffer().put(table);
+			buf.position(buf.position() + table.length * 4);
+		}
+		for (byte[] bytes : strings.list) {
+			buf.putInt(bytes.length).put(bytes);
+		}
+		buf.putInt(60, bodyCrc(buf));
+
+		Path temp = Files.createTempFile(cachePath.toAbsolutePath().getParent(), cachePath.getFileName() + ".",
+				".tmp");
+		try {
+			Files.write(temp, buf.array());
+			try {
+				Files.move(temp, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, cachePath, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	// header之後所有內容的CRC32
+	private static int bodyCrc(ByteBuffer buf) {
+		ByteBuffer body = buf.duplicate();
+		body.limit(body.capacity());
+		body.position(HEADER_SIZE);
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		return (int) crc.getValue();
+	}
+
+	private static int slots(int count) {
+		int slots = 2;
+		while (slots < count * 2) {
+			slots <<= 1;
+		}
+		return slots;
+	}
+
+	private static void insert(int[] table, int hash, int index) {
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = index + 1;
+	}
+
+	private static int hash(String section) {
+		int h = section.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static int hash(String section, String param) {
+		int h = section.hashCode() * 31 + param.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	static String utf8(ByteBuffer buf, int offset, int length) {
+		byte[] bytes = new byte[length];
+		ByteBuffer dup = buf.duplicate();
+		dup.position(offset);
+		dup.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// 寫入時使用，相同的字串只存一次。
+	private static class StringTable {
+		private final Map<String, Integer> offsets = new HashMap<>();
+		private final List<byte[]> list = new ArrayList<>();
+		private int length = 0;
+
+		int add(String str) {
+			Integer offset = offsets.get(str);
+			if (offset == null) {
+				byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+				offset = length;
+				offsets.put(str, offset);
+				list.add(bytes);
+				length += 4 + bytes.length;
+			}
+			return offset;
+		}
+	}
+
+	// 直接從mmap的快取檔讀取的ConfigSnapshot，只有讀到的字串才會建立String。
+	private static final class MappedSnapshot extends ConfigSnapshot {
+		private final ByteBuffer buf;
+		private final int sectionCount;
+		private final int sectionSlots;
+		private final int paramSlots;
+		private final int sectionTable;
+		private final int paramTable;
+		private final int lineTable;
+		private final int sectionHash;
+		private final int paramHash;
+		private final int strings;
+
+		MappedSnapshot(Path path, ByteBuffer buf) {
+			super(path);
+			this.buf = buf;
+			sectionCount = buf.getInt(32);
+			int paramCount = buf.getInt(36);
+			int lineCount = buf.getInt(40);
+			sectionSlots = buf.getInt(44);
+			paramSlots = buf.getInt(48);
+			sectionTable = HEADER_SIZE;
+			paramTable = sectionTable + sectionCount * SECTION_SIZE;
+			lineTable = paramTable + paramCount * PARAM_SIZE;
+			sectionHash = lineTable + lineCount * 4;
+			paramHash = sectionHash + sectionSlots * 4;
+			strings = paramHash + paramSlots * 4;
+		}
+
+		@Override
+		public Object get(String section, String param) {
+			int mask = paramSlots - 1;
+			int slot = hash(section, param) & mask;
+			int index;
+			while ((index = buf.getInt(paramHash + slot * 4)) != 0) {
+				int entry = paramTable + (index - 1) * PARAM_SIZE;
+				if (same(buf.getInt(entry + 4), param)
+						&& same(buf.getInt(sectionTable + buf.getInt(entry) * SECTION_SIZE), section)) {
+					return value(buf.getInt(entry + 8));
+				}
+				slot = (slot + 1) & mask;
+			}
+			return null;
+		}
+
+		@Override
+		public Map<String, Object> getSection(String section) {
+			int s = find(section);
+			if (s == -1) {
+				return Collections.<String, Object>emptyMap();
+			}
+			int first = buf.getInt(sectionTable + s * SECTION_SIZE + 4);
+			int count = buf.getInt(sectionTable + s * SECTION_SIZE + 8);
+			Map<String, Object> params = new HashMap<>(count * 2);
+			for (int i = first; i < first + count; i++) {
+				int entry = paramTable + i * PARAM_SIZE;
+				params.put(string(buf.getInt(entry + 4)), value(buf.getInt(entry + 8)));
+			}
+			return Collections.unmodifiableMap(params);
+		}
+
+		@Override
+		public boolean containSection(String section) {
+			return find(section) != -1;
+		}
+
+		@Override
+		public Set<String> getSections() {
+			Set<String> names = new HashSet<>(sectionCount * 2);
+			for (int s = 0; s < sectionCount; s++) {
+				names.add(string(buf.getInt(sectionTable + s * SECTION_SIZE)));
+			}
+			return Collections.unmodifiableSet(names);
+		}
+
+		@Override
+		public List<String> getOtherLines(String section) {
+			int s = find(section);
+			if (s == -1) {
+				return Collections.<String>emptyList();
+			}
+			int first = buf.getInt(sectionTable + s * SECTION_SIZE + 12);
+			int count = buf.getInt(sectionTable + s * SECTION_SIZE + 16);
+			List<String> lines = new ArrayList<>(count);
+			for (int i = first; i < first + count; i++) {
+				lines.add(string(buf.getInt(lineTable + i * 4)));
+			}
+			return Collections.unmodifiableList(lines);
+		}
+
+		private int find(String section) {
+			int mask = sectionSlots - 1;
+			int slot = hash(section) & mask;
+			int index;
+			while ((index = buf.getInt(sectionHash + slot * 4)) != 0) {
+				if (same(buf.getInt(sectionTable + (index - 1) * SECTION_SIZE), section)) {
+					return index - 1;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+
+		private String string(int offset) {
+			return utf8(buf, strings + offset + 4, buf.getInt(strings + offset));
+		}
+
+		private Object value(int offset) {
+			if ((offset & TEMPLATE) != 0) {
+				return ConfigTemplate.of(string(offset & ~TEMPLATE));
+			}
+			return new LazyValue(buf, strings + offset + 4, buf.getInt(strings + offset));
+		}
+
+		// 比對字串表裡的字串，ASCII時直接比較bytes，不建立String。
+		private boolean same(int offset, String str) {
+			int length = buf.getInt(strings + offset);
+			int start = strings + offset + 4;
+			for (int i = 0; i < str.length(); i++) {
+				if (str.charAt(i) >= 0x80) {
+					return utf8(buf, start, length).equals(str);
+				}
+			}
+			if (length != str.length()) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (buf.get(start + i) != str.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+import tw.com.jinnboy.javautil.util.Config;
+
+/**
+ * 已經轉好型別的設定值，適合在迴圈裡重複讀取的參數。
+ *
+ * 第一次get()時才解析Config的字串，之後只要Config沒有重新載入、category沒有改變，都直接回傳暫存的結果。
+ * 設定值空白或格式錯誤時回傳defaultValue。
+ *
+ * private static final ConfigHandle<Integer> TIMEOUT = ConfigHandle.ofInt("Timeout", 30);
+ * int timeout = TIMEOUT.get();
+ *
+ * @author 阿昌
+ */
+public abstract class ConfigHandle<T> {
+	private final String param;
+	private final T defaultValue;
+	private volatile Cached<T> cached;
+
+	private static class Cached<T> {
+		final ConfigView view;
+		final T value;
+
+		Cached(ConfigView view, T value) {
+			this.view = view;
+			this.value = value;
+		}
+	}
+
+	protected ConfigHandle(String param, T defaultValue) {
+		this.param = param;
+		this.defaultValue = defaultValue;
+	}
+
+	public String getParam() {
+		return param;
+	}
+
+	public T get() {
+		ConfigView view = Config.getView();
+		Cached<T> current = cached;
+		if (current == null || current.view != view) {
+			current = new Cached<>(view, resolve(view));
+			cached = current;
+		}
+		return current.value;
+	}
+
+	private T resolve(ConfigView view) {
+		Object value = view.get(param);
+		String str = value == null ? "" : value.toString().trim();
+		if (str.isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return parse(str);
+		} catch (RuntimeException e) {
+			System.out.println(String.format("ConfigHandle.get(%s) has error: %s", param, e));
+			return defaultValue;
+		}
+	}
+
+	protected abstract T parse(String value);
+
+	public static ConfigHandle<Integer> ofInt(String param, int defaultValue) {
+		return new ConfigHandle<Integer>(param, defaultValue) {
+			@Override
+			protected Integer parse(String value) {
+				return Integer.valueOf(value);
+			}
+		};
+	}
+
+	public static ConfigHandle<Long> ofLong(String param, long defaultValue) {
+		return new ConfigHandle<Long>(param, defaultValue) {
+			@Override
+			protected Long parse(String value) {
+				return Long.valueOf(value);
+			}
+		};
+	}
+
+	/**
+	 * 1、true、y、yes、on(不分大小寫)為true，其他為false。
+	 */
+	public static ConfigHandle<Boolean> ofBoolean(String param, boolean defaultValue) {
+		return new ConfigHandle<Boolean>(param, defaultValue) {
+			@Override
+			protected Boolean parse(String value) {
+				return parseBoolean(value);
+			}
+		};
+	}
+
+	/**
+	 * 可以寫成500ms、30s、5m、2h、1d或ISO-8601的PT30S，沒有單位時視為毫秒。
+	 */
+	public static ConfigHandle<Duration> ofDuration(String param, Duration defaultValue) {
+		return new ConfigHandle<Duration>(param, defaultValue) {
+			@Override
+			protected Duration parse(String value) {
+				return parseDuration(value);
+			}
+		};
+	}
+
+	public static boolean parseBoolean(String value) {
+		return "1".equals(value) || "true".equalsIgnoreCase(value) || "y".equalsIgnoreCase(value)
+				|| "yes".equalsIgnoreCase(value) || "on".equalsIgnoreCase(value);
+	}
+
+	public static Duration parseDuration(String value) {
+		String str = value.trim().toLowerCase();
+		if (str.startsWith("p")) {
+			try {
+				return Duration.parse(str.toUpperCase());
+			} catch (DateTimeParseException e) {
+				throw new IllegalArgumentException("Invalid duration: " + value, e);
+			}
+		}
+		int i = 0;
+		while (i < str.length() && (Character.isDigit(str.charAt(i)) || (i == 0 && str.charAt(i) == '-'))) {
+			i++;
+		}
+		if (i == 0) {
+			throw new IllegalArgumentException("Invalid duration: " + value);
+		}
+		long amount = Long.parseLong(str.substring(0, i));
+		switch (str.substring(i).trim()) {
+		case "":
+		case "ms":
+			return Duration.ofMillis(amount);
+		case "s":
+			return Duration.ofSeconds(amount);
+		case "m":
+			return Duration.ofMinutes(amount);
+		case "h":
+			return Duration.ofHours(amount);
+		case "d":
+			return Duration.ofDays(amount);
+		default:
+			throw new IllegalArgumentException("Invalid duration: " + value);
+		}
+	}
+}
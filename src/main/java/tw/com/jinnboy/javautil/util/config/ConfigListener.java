@@ -0,0 +1,16 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import java.util.Set;
+
+/**
+ * Config重新載入且內容有變動時的通知，由Config.addListener()註冊。
+ *
+ * @author 阿昌
+ */
+public interface ConfigListener {
+	/**
+	 * @param keys 有新增、修改或刪除的param，global的param為「param」，section裡的為「section@param」(section為小寫)，
+	 *             section裡非param=value格式的文字有變動時為「section@」
+	 */
+	void changed(Set<String> keys);
+}
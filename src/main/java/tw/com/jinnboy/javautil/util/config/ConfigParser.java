@@ -0,0 +1,283 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 解析cfg檔，格式請見Config。
+ *
+ * 1.用FileChannel.map()一次把整個檔案讀進byte[]，直接在bytes上找行、section和等號，不經過Reader和String。
+ *   不持有MappedByteBuffer，之後檔案被修改或截短(例如ConfigWatcher重新載入前)也不會影響已載入的內容。
+ * 2.先找出所有section的起點，檔案夠大時依section把檔案切成幾段，交給ForkJoinPool平行解析，最後依檔案順序合併。
+ * 3.param名稱只有英數字和底線，每段各自用byte內容查表，相同的名稱只建立一個String，並在各段之間共用(intern)。
+ * 4.值先存成LazyValue，第一次讀取時才解碼成String；有${param}的值預先切好成ConfigTemplate。
+ *
+ * @author 阿昌
+ */
+public final class ConfigParser {
+	private static final int PARALLEL_THRESHOLD = 256 * 1024;
+	private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+	private ConfigParser() {
+	}
+
+	public static ConfigSnapshot parse(Path path) throws IOException {
+		byte[] data;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE - 8) {
+				throw new IOException("Config file is too large: " + size);
+			}
+			data = new byte[(int) size];
+			if (size > 0) {
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				mapped.get(data);
+			}
+		}
+		return parse(path, data);
+	}
+
+	static ConfigSnapshot parse(Path path, byte[] data) throws IOException {
+		int start = 0;
+		if (data.length >= 3 && (data[0] & 0xFF) == 0xEF && (data[1] & 0xFF) == 0xBB && (data[2] & 0xFF) == 0xBF) {
+			start = 3; // UTF-8 BOM
+		}
+		ConcurrentHashMap<String, String> names = new ConcurrentHashMap<>();
+		List<Chunk> chunks = new ArrayList<>();
+		if (data.length - start < PARALLEL_THRESHOLD) {
+			chunks.add(new Chunk(data, start, data.length, names));
+			chunks.get(0).call();
+		} else {
+			int[] bounds = split(data, start);
+			List<Future<Chunk>> futures = new ArrayList<>(bounds.length - 1);
+			ForkJoinPool pool = ForkJoinPool.commonPool();
+			for (int i = 0; i + 1 < bounds.length; i++) {
+				futures.add(pool.submit(new Chunk(data, bounds[i], bounds[i + 1], names)));
+			}
+			try {
+				for (Future<Chunk> future : futures) {
+					chunks.add(future.get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Parsing config is interrupted.", e);
+			} catch (ExecutionException e) {
+				throw new IOException("Parsing config has error.", e.getCause());
+			}
+		}
+		ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder(path);
+		for (Chunk chunk : chunks) {
+			for (Map.Entry<String, Map<String, Object>> entry : chunk.sections.entrySet()) {
+				builder.putSection(entry.getKey(), entry.getValue());
+			}
+			for (Map.Entry<String, List<String>> entry : chunk.otherLines.entrySet()) {
+				for (String line : entry.getValue()) {
+					builder.addOtherLine(entry.getKey(), line);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	// 依處理器數量切成差不多大的幾段，每段都從section的開頭(或檔頭)開始。
+	private static int[] split(byte[] data, int start) {
+		int parts = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4,
+				(data.length - start) / MIN_CHUNK_SIZE));
+		int target = (data.length - start) / parts;
+		List<Integer> bounds = new ArrayList<>(parts + 1);
+		bounds.add(start);
+		int next = start + target;
+		int p = start;
+		while (p < data.length) {
+			int lineEnd = p;
+			while (lineEnd < data.length && data[lineEnd] != '\n' && data[lineEnd] != '\r') {
+				lineEnd++;
+			}
+			if (p >= next && isSectionLine(data, p, lineEnd)) {
+				bounds.add(p);
+				next = p + target;
+			}
+			p = lineEnd + 1;
+		}
+		bounds.add(data.length);
+		int[] result = new int[bounds.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+
+	private static boolean isSectionLine(byte[] data, int from, int to) {
+		while (from < to && (data[from] & 0xFF) <= ' ') {
+			from++;
+		}
+		while (to > from && (data[to - 1] & 0xFF) <= ' ') {
+			to--;
+		}
+		return to - from >= 2 && data[from] == '[' && data[to - 1] == ']';
+	}
+
+	private static boolean isParamByte(byte b) {
+		return b == '_' || (b >= '0' && b <= '9') || (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z');
+	}
+
+	// 檔案的其中一段，從一個section的開頭到下一段的開頭。
+	private static class Chunk implements Callable<Chunk> {
+		private final byte[] data;
+		private final int from;
+		private final int to;
+		private final ConcurrentHashMap<String, String> names;
+		private final Map<String, Map<String, Object>> sections = new LinkedHashMap<>();
+		private final Map<String, List<String>> otherLines = new HashMap<>();
+		private String[] keyTable = new String[256];
+		private int keyCount = 0;
+
+		Chunk(byte[] data, int from, int to, ConcurrentHashMap<String, String> names) {
+			this.data = data;
+			this.from = from;
+			this.to = to;
+			this.names = names;
+		}
+
+		@Override
+		public Chunk call() {
+			byte[] b = data;
+			String section = "";
+			Map<String, Object> params = null;
+			int p = from;
+			while (p < to) {
+				int lineEnd = p;
+				while (lineEnd < to && b[lineEnd] != '\n' && b[lineEnd] != '\r') {
+					lineEnd++;
+				}
+				int start = p;
+				int end = lineEnd;
+				p = lineEnd + 1;
+				while (start < end && (b[start] & 0xFF) <= ' ') {
+					start++;
+				}
+				while (end > start && (b[end - 1] & 0xFF) <= ' ') {
+					end--;
+				}
+				if (start == end || b[start] == '#') {
+					continue;
+				}
+				if (b[start] == '[' && b[end - 1] == ']' && end - start >= 2) {
+					section = new String(b, start + 1, end - start - 2, StandardCharsets.UTF_8).toLowerCase();
+					params = sections.get(section);
+					if (params == null) {
+						params = new HashMap<>();
+						sections.put(section, params);
+					}
+					continue;
+				}
+				int eq = start;
+				while (eq < end && b[eq] != '=') {
+					eq++;
+				}
+				if (eq > start && eq < end) {
+					int keyEnd = eq;
+					while (keyEnd > start && (b[keyEnd - 1] & 0xFF) <= ' ') {
+						keyEnd--;
+					}
+					boolean valid = keyEnd > start;
+					for (int i = start; i < keyEnd && valid; i++) {
+						valid = isParamByte(b[i]);
+					}
+					if (valid) {
+						int valueStart = eq + 1;
+						while (valueStart < end && (b[valueStart] & 0xFF) <= ' ') {
+							valueStart++;
+						}
+						if (params == null) {
+							params = new HashMap<>();
+							sections.put(section, params);
+						}
+						Object value = ConfigTemplate.hasReference(b, valueStart, end)
+								? ConfigTemplate.of(new String(b, valueStart, end - valueStart, StandardCharsets.UTF_8))
+								: new LazyValue(b, valueStart, end - valueStart);
+						params.put(key(start, keyEnd), value);
+						continue;
+					}
+				}
+				List<String> lines = otherLines.get(section);
+				if (lines == null) {
+					lines = new ArrayList<>(4);
+					otherLines.put(section, lines);
+				}
+				lines.add(new String(b, start, end - start, StandardCharsets.UTF_8));
+			}
+			keyTable = null;
+			return this;
+		}
+
+		// 用bytes的內容查表，同一個名稱只建立一次String。
+		private String key(int start, int end) {
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + data[i];
+			}
+			int mask = keyTable.length - 1;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			String key;
+			while ((key = keyTable[slot]) != null) {
+				if (key.hashCode() == hash && sameBytes(key, start, end)) {
+					return key;
+				}
+				slot = (slot + 1) & mask;
+			}
+			key = new String(data, start, end - start, StandardCharsets.ISO_8859_1);
+			String shared = names.putIfAbsent(key, key);
+			if (shared != null) {
+				key = shared;
+			}
+			keyTable[slot] = key;
+			if (++keyCount * 2 > keyTable.length) {
+				rehash();
+			}
+			return key;
+		}
+
+		private boolean sameBytes(String key, int start, int end) {
+			if (key.length() != end - start) {
+				return false;
+			}
+			for (int i = 0; i < key.length(); i++) {
+				if (key.charAt(i) != data[start + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void rehash() {
+			String[] old = keyTable;
+			keyTable = new String[old.length * 2];
+			int mask = keyTable.length - 1;
+			for (String key : old) {
+				if (key != null) {
+					int hash = key.hashCode();
+					int slot = (hash ^ (hash >>> 16)) & mask;
+					while (keyTable[slot] != null) {
+						slot = (slot + 1) & mask;
+					}
+					keyTable[slot] = key;
+				}
+			}
+		}
+	}
+}
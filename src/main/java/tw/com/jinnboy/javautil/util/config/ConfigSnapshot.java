@@ -0,0 +1,260 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 某個時間點的cfg檔內容，建立後就不會再改變。
+ *
+ * Config載入時先用Builder在旁邊建好一份新的ConfigSnapshot，完成後才一次換掉，
+ * 讀取的執行緒不需要lock，也不會看到載入到一半的內容。
+ *
+ * section名稱一律轉成小寫，global section為空字串。
+ *
+ * 內容可能放在HashMap裡(Builder建立)，也可能直接從mmap的binary快取讀取(ConfigCache)。
+ *
+ * @author 阿昌
+ */
+public abstract class ConfigSnapshot {
+	public static final ConfigSnapshot EMPTY = new Builder(null).build();
+
+	private final Path path;
+	private final ConcurrentHashMap<String, ConfigView> views = new ConcurrentHashMap<>(); // 不合併profile
+	private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConfigView>> profileViews = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, ConfigView> sharedViews = new ConcurrentHashMap<>(); // 小寫的名稱
+
+	ConfigSnapshot(Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * 載入的cfg檔路徑，沒有找到cfg檔時為null。
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * 取得category合併好global後的ConfigView，第一次使用時建立，之後重複使用。category為null表示只看global。
+	 */
+	public ConfigView view(String category) {
+		return view(category, null);
+	}
+
+	/**
+	 * 取得category合併好global和profile section(例如[CategoryA.PROD])後的ConfigView。profile為null表示不合併。
+	 * 和section名稱相同不分大小寫，CategoryA和categorya共用同一個ConfigView。
+	 */
+	public ConfigView view(String category, String profile) {
+		String key = category == null ? "" : category;
+		ConfigView view;
+		if (profile == null) {
+			view = views.get(key);
+		} else {
+			Map<String, ConfigView> profiles = profileViews.get(key);
+			view = profiles == null ? null : profiles.get(profile);
+		}
+		return view != null ? view : createView(key, profile);
+	}
+
+	// 查詢時直接用呼叫端的字串查map，不轉小寫也不組字串；第一次遇到的寫法才轉成小寫找出共用的ConfigView，再記在這個寫法下。
+	private ConfigView createView(String category, String profile) {
+		String sharedKey = profile == null ? category.toLowerCase()
+				: category.toLowerCase() + '\n' + profile.toLowerCase();
+		ConfigView view = sharedViews.get(sharedKey);
+		if (view == null) {
+			view = new ConfigView(this, category, profile);
+			ConfigView previous = sharedViews.putIfAbsent(sharedKey, view);
+			if (previous != null) {
+				view = previous;
+			}
+		}
+		if (profile == null) {
+			views.putIfAbsent(category, view);
+		} else {
+			ConcurrentHashMap<String, ConfigView> profiles = profileViews.get(category);
+			if (profiles == null) {
+				profiles = new ConcurrentHashMap<>();
+				ConcurrentHashMap<String, ConfigView> previous = profileViews.putIfAbsent(category, profiles);
+				if (previous != null) {
+					profiles = previous;
+				}
+			}
+			profiles.putIfAbsent(profile, view);
+		}
+		return view;
+	}
+
+	/**
+	 * 取得section裡的param，section必須是小寫，空字串表示global。
+	 */
+	public abstract Object get(String section, String param);
+
+	/**
+	 * 取得section的所有param，section必須是小寫，空字串表示global。
+	 */
+	public abstract Map<String, Object> getSection(String section);
+
+	public abstract boolean containSection(String section);
+
+	public abstract Set<String> getSections();
+
+	/**
+	 * section裡不是param=value格式的文字。
+	 */
+	public abstract List<String> getOtherLines(String section);
+
+	/**
+	 * 比較兩份設定，回傳有新增、修改或刪除的key，格式請見ConfigListener。
+	 */
+	public static Set<String> diff(ConfigSnapshot before, ConfigSnapshot after) {
+		Set<String> keys = new HashSet<>();
+		Set<String> sectionNames = new HashSet<>(before.getSections());
+		sectionNames.addAll(after.getSections());
+		for (String section : sectionNames) {
+			String prefix = section.isEmpty() ? "" : section + '@';
+			Map<String, Object> a = before.getSection(section);
+			Map<String, Object> b = after.getSection(section);
+			for (Map.Entry<String, Object> entry : a.entrySet()) {
+				Object value = b.get(entry.getKey());
+				if (value == null || !value.toString().equals(entry.getValue().toString())) {
+					keys.add(prefix + entry.getKey());
+				}
+			}
+			for (String param : b.keySet()) {
+				if (!a.containsKey(param)) {
+					keys.add(prefix + param);
+				}
+			}
+			if (!before.getOtherLines(section).equals(after.getOtherLines(section))) {
+				keys.add(section + '@');
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * 載入時使用，只能由單一執行緒操作，build()之後就不能再修改。
+	 */
+	public static class Builder {
+		private final Path path;
+		private final Map<String, Map<String, Object>> sections = new HashMap<>();
+		private final Map<String, List<String>> otherLines = new HashMap<>();
+
+		public Builder(Path path) {
+			this.path = path;
+			sections.put("", new HashMap<String, Object>());
+		}
+
+		/**
+		 * 開始一個section，section名稱會轉成小寫。
+		 */
+		public Builder section(String section) {
+			params(section);
+			return this;
+		}
+
+		/**
+		 * 加入一個param，String的值有${param}時先切成ConfigTemplate。
+		 */
+		public Builder put(String section, String param, Object value) {
+			params(section).put(param, value instanceof String ? ConfigTemplate.of((String) value) : value);
+			return this;
+		}
+
+		/**
+		 * 加入一整個section的param，section必須是小寫。還沒有這個section時直接使用params，不再複製一份。
+		 */
+		public Builder putSection(String section, Map<String, Object> params) {
+			Map<String, Object> current = sections.get(section);
+			if (current == null || current.isEmpty()) {
+				sections.put(section, params);
+			} else {
+				current.putAll(params);
+			}
+			return this;
+		}
+
+		private Map<String, Object> params(String section) {
+			section = section.toLowerCase();
+			Map<String, Object> params = sections.get(section);
+			if (params == null) {
+				params = new HashMap<>();
+				sections.put(section, params);
+			}
+			return params;
+		}
+
+		public Builder addOtherLine(String section, String line) {
+			section = section.toLowerCase();
+			params(section);
+			List<String> lines = otherLines.get(section);
+			if (lines == null) {
+				lines = new ArrayList<>(4);
+				otherLines.put(section, lines);
+			}
+			lines.add(line);
+			return this;
+		}
+
+		public ConfigSnapshot build() {
+			Map<String, Map<String, Object>> sectionMap = new HashMap<>(sections.size() * 2);
+			for (Map.Entry<String, Map<String, Object>> entry : sections.entrySet()) {
+				sectionMap.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue()));
+			}
+			Map<String, List<String>> linesMap = new HashMap<>(otherLines.size() * 2);
+			for (Map.Entry<String, List<String>> entry : otherLines.entrySet()) {
+				linesMap.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+			}
+			return new MapSnapshot(path, Collections.unmodifiableMap(sectionMap),
+					Collections.unmodifiableMap(linesMap));
+		}
+	}
+
+	// Builder建立的ConfigSnapshot，內容放在HashMap裡。
+	private static final class MapSnapshot extends ConfigSnapshot {
+		private final Map<String, Map<String, Object>> sections;
+		private final Map<String, List<String>> otherLines;
+
+		MapSnapshot(Path path, Map<String, Map<String, Object>> sections, Map<String, List<String>> otherLines) {
+			super(path);
+			this.sections = sections;
+			this.otherLines = otherLines;
+		}
+
+		@Override
+		public Object get(String section, String param) {
+			Map<String, Object> params = sections.get(section);
+			return params == null ? null : params.get(param);
+		}
+
+		@Override
+		public Map<String, Object> getSection(String section) {
+			Map<String, Object> params = sections.get(section);
+			return params == null ? Collections.<String, Object>emptyMap() : params;
+		}
+
+		@Override
+		public boolean containSection(String section) {
+			return sections.containsKey(section);
+		}
+
+		@Override
+		public Set<String> getSections() {
+			return sections.keySet();
+		}
+
+		@Override
+		public List<String> getOtherLines(String section) {
+			List<String> lines = otherLines.get(section);
+			return lines == null ? Collections.<String>emptyList() : lines;
+		}
+	}
+}
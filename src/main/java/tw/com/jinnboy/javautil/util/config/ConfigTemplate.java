@@ -0,0 +1,181 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 有${param}的值，載入時先切成文字和param名稱交錯的幾段，建立ConfigView時再換成該category看到的param值。
+ *
+ * param名稱只能有英數字和底線，不符合的${...}和找不到的param維持原本的文字；互相參照時印出錯誤並保留原本的文字。
+ * toString()回傳原本的文字，ConfigSnapshot.diff()和ConfigCache都以原本的文字為準。
+ *
+ * @author 阿昌
+ */
+final class ConfigTemplate implements CharSequence {
+	private static final String CIRCULAR = new String("${}"); // 用==比較
+
+	private final String source;
+	private final String[] literals; // literals[i]在params[i]前面，最後一段文字在literals[params.length]
+	private final String[] params;
+
+	private ConfigTemplate(String source, String[] literals, String[] params) {
+		this.source = source;
+		this.literals = literals;
+		this.params = params;
+	}
+
+	/**
+	 * 沒有${param}時回傳null。
+	 */
+	static ConfigTemplate compile(String source) {
+		List<String> literals = null;
+		List<String> params = null;
+		int start = 0;
+		int i = source.indexOf("${");
+		while (i != -1) {
+			int end = source.indexOf('}', i + 2);
+			if (end == -1) {
+				break;
+			}
+			String param = source.substring(i + 2, end);
+			if (isParam(param)) {
+				if (literals == null) {
+					literals = new ArrayList<>(4);
+					params = new ArrayList<>(4);
+				}
+				literals.add(source.substring(start, i));
+				params.add(param);
+				start = end + 1;
+				i = source.indexOf("${", start);
+			} else {
+				i = source.indexOf("${", i + 2);
+			}
+		}
+		if (literals == null) {
+			return null;
+		}
+		literals.add(source.substring(start));
+		return new ConfigTemplate(source, literals.toArray(new String[literals.size()]),
+				params.toArray(new String[params.size()]));
+	}
+
+	/**
+	 * 有${param}時回傳ConfigTemplate，否則回傳原本的value。
+	 */
+	static Object of(String value) {
+		ConfigTemplate template = value.indexOf("${") == -1 ? null : compile(value);
+		return template == null ? value : template;
+	}
+
+	static boolean hasReference(byte[] data, int from, int to) {
+		for (int i = from; i + 1 < to; i++) {
+			if (data[i] == '$' && data[i + 1] == '{') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isParam(String param) {
+		if (param.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < param.length(); i++) {
+			char ch = param.charAt(i);
+			if (ch != '_' && (ch < '0' || ch > '9') && (ch < 'A' || ch > 'Z') && (ch < 'a' || ch > 'z')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 把values裡所有的ConfigTemplate換成結果字串，ConfigView建立時使用。
+	 */
+	static void resolveAll(Map<String, Object> values) {
+		List<String> keys = null;
+		for (Map.Entry<String, Object> entry : values.entrySet()) {
+			if (entry.getValue() instanceof ConfigTemplate) {
+				if (keys == null) {
+					keys = new ArrayList<>();
+				}
+				keys.add(entry.getKey());
+			}
+		}
+		if (keys != null) {
+			Set<String> resolving = new HashSet<>();
+			for (String key : keys) {
+				resolve(values, key, resolving);
+			}
+		}
+	}
+
+	// 回傳key的結果字串，並把values裡的ConfigTemplate換成結果，參照到同一個param時不必重算。
+	// 遇到互相參照時回傳CIRCULAR，參照鏈上的值都保留原本的文字。
+	private static String resolve(Map<String, Object> values, String key, Set<String> resolving) {
+		Object value = values.get(key);
+		if (!(value instanceof ConfigTemplate)) {
+			return value == null ? null : value.toString();
+		}
+		ConfigTemplate template = (ConfigTemplate) value;
+		if (!resolving.add(key)) {
+			System.out.println(String.format("Config param(%s) has error: circular reference %s", key,
+					template.source));
+			return CIRCULAR;
+		}
+		StringBuilder sb = new StringBuilder(template.source.length() + 16);
+		String result = null;
+		for (int i = 0; i < template.params.length && result == null; i++) {
+			sb.append(template.literals[i]);
+			String param = template.params[i];
+			String str = resolve(values, param, resolving);
+			if (str == CIRCULAR) {
+				result = CIRCULAR;
+			} else if (str == null) {
+				sb.append("${").append(param).append('}');
+			} else {
+				sb.append(str);
+			}
+		}
+		resolving.remove(key);
+		if (result == null) {
+			sb.append(template.literals[template.params.length]);
+			result = sb.toString();
+		}
+		values.put(key, result == CIRCULAR ? template.source : result);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+
+	@Override
+	public int length() {
+		return source.length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		return source.charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return source.subSequence(start, end);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof ConfigTemplate && source.equals(obj.toString());
+	}
+
+	@Override
+	public int hashCode() {
+		return source.hashCode();
+	}
+}
@@ -0,0 +1,93 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tw.com.jinnboy.javautil.util.DateTemplate;
+
+/**
+ * 某個category實際看到的設定：先放global的param，再用category section的param蓋過去，
+ * 最後再用環境的profile section蓋過去，例如Config.getEnvironment()為PROD時的[CategoryA.PROD]。
+ * 合併後把值裡的${param}換成這個ConfigView看到的param值，所以同一個${param}在不同category可能得到不同結果。
+ *
+ * expand()另外把值裡的日期符號(Dates.replaceSymbol()的yyyyMMdd、$yesterday等)換成指定時間，
+ * 每個param只解析一次DateTemplate，只有日期的值同一天內直接回傳上次的結果。
+ *
+ * 在設定category或載入cfg時就合併好，之後查詢只需要對param名稱查一次HashMap，不用再組「category@param」字串。
+ * ConfigView建立後不會改變，每個ConfigSnapshot的每個category只會建立一次。
+ *
+ * @author 阿昌
+ */
+public final class ConfigView {
+	private final ConfigSnapshot snapshot;
+	private final String category;
+	private final String profile;
+	private final Map<String, Object> params;
+	private final ConcurrentHashMap<String, DateTemplate> templates = new ConcurrentHashMap<>();
+
+	ConfigView(ConfigSnapshot snapshot, String category, String profile) {
+		this.snapshot = snapshot;
+		this.category = category;
+		this.profile = profile;
+		Map<String, Object> global = snapshot.getSection("");
+		Map<String, Object> section = Collections.emptyMap();
+		Map<String, Object> profileSection = Collections.emptyMap();
+		if (category != null && !category.isEmpty()) {
+			section = snapshot.getSection(category.toLowerCase());
+			if (profile != null && !profile.isEmpty()) {
+				profileSection = snapshot.getSection((category + '.' + profile).toLowerCase());
+			}
+		}
+		Map<String, Object> merged = new HashMap<>((global.size() + section.size() + profileSection.size()) * 2);
+		merged.putAll(global);
+		merged.putAll(section);
+		merged.putAll(profileSection);
+		ConfigTemplate.resolveAll(merged);
+		this.params = merged;
+	}
+
+	public ConfigSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public String getCategory() {
+		return category;
+	}
+
+	/**
+	 * 合併的profile section，例如PROD，沒有時為null。
+	 */
+	public String getProfile() {
+		return profile;
+	}
+
+	public Object get(String param) {
+		return params.get(param);
+	}
+
+	public String get(String param, String defaultValue) {
+		Object value = params.get(param);
+		return value == null ? defaultValue : value.toString();
+	}
+
+	/**
+	 * 取得param的值，並把日期符號換成time的日期和時間，沒有這個param時回傳defaultValue。
+	 */
+	public String expand(String param, long time, String defaultValue) {
+		DateTemplate template = templates.get(param);
+		if (template == null) {
+			Object value = params.get(param);
+			if (value == null) {
+				return defaultValue;
+			}
+			template = DateTemplate.compile(value.toString());
+			DateTemplate previous = templates.putIfAbsent(param, template);
+			if (previous != null) {
+				template = previous;
+			}
+		}
+		return template.format(time);
+	}
+}
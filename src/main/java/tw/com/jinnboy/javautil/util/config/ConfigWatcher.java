@@ -0,0 +1,98 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import tw.com.jinnboy.javautil.util.Config;
+
+/**
+ * 監看cfg檔，檔案修改後由背景執行緒重新呼叫Config.load(path)。
+ *
+ * 編輯器存檔時常常連續觸發好幾次修改事件(或先刪除再建立)，最後一次事件之後靜止debounceMillis才重新載入，
+ * 只解析一次。載入失敗或檔案暫時不存在時保留原本的設定。
+ * 只有cfg檔本身的事件會延後重新載入，同一個目錄裡其他檔案(例如寫出的.bin快取或log檔)一直在寫入也不影響。
+ *
+ * @author 阿昌
+ */
+public class ConfigWatcher implements Closeable {
+	private final Path path;
+	private final long debounceMillis;
+	private final WatchService service;
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	public ConfigWatcher(Path path, long debounceMillis) throws IOException {
+		this.path = path.toAbsolutePath();
+		this.debounceMillis = debounceMillis;
+		this.service = this.path.getFileSystem().newWatchService();
+		this.path.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watch();
+			}
+		}, "Config-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	private void watch() {
+		boolean pending = false;
+		long deadline = 0; // cfg檔最後一次事件之後debounceMillis的System.nanoTime()
+		try {
+			while (running) {
+				WatchKey key;
+				if (pending) {
+					long wait = deadline - System.nanoTime();
+					if (wait <= 0) {
+						pending = false;
+						reload();
+						continue;
+					}
+					key = service.poll(wait, TimeUnit.NANOSECONDS);
+					if (key == null) {
+						continue;
+					}
+				} else {
+					key = service.take();
+				}
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW
+							|| path.getFileName().equals(event.context())) {
+						pending = true;
+						deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+					}
+				}
+				key.reset();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// close()
+		}
+	}
+
+	private void reload() {
+		if (Files.isRegularFile(path)) {
+			Config.load(path);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		service.close();
+		thread.interrupt();
+	}
+}
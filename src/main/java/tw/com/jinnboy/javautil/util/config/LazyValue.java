@@ -0,0 +1,70 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * cfg裡還沒用到的值，只記住在檔案內容裡的位置，第一次toString()時才解碼成String。
+ *
+ * 大型cfg檔大部分的值在程式執行期間都不會被讀到，載入時不必為它們建立String。
+ * 內容可能在ConfigParser讀入的byte[]，也可能在ConfigCache mmap的快取檔裡。
+ *
+ * @author 阿昌
+ */
+public final class LazyValue implements CharSequence {
+	private final byte[] data;
+	private final ByteBuffer buffer;
+	private final int offset;
+	private final int length;
+	private String value;
+
+	LazyValue(byte[] data, int offset, int length) {
+		this.data = data;
+		this.buffer = null;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	LazyValue(ByteBuffer buffer, int offset, int length) {
+		this.data = null;
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public String toString() {
+		String str = value;
+		if (str == null) {
+			str = data != null ? new String(data, offset, length, StandardCharsets.UTF_8)
+					: ConfigCache.utf8(buffer, offset, length);
+			value = str; // String本身是immutable，多個執行緒同時解碼也只是重複做一次
+		}
+		return str;
+	}
+
+	@Override
+	public int length() {
+		return toString().length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		return toString().charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().subSequence(start, end);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof LazyValue && toString().equals(obj.toString());
+	}
+
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+}
@@ -0,0 +1,241 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 非同步的log輸出。
+ *
+ * 呼叫端只把time、level、classMethod、message放進預先配置好的ring buffer就返回，不做格式化也不碰檔案，
+ * 由單一的背景執行緒整批取出後交給LogSink寫出，每批只flush一次。
+ *
+ * ring buffer為多寫單讀(MPSC)，每個slot有自己的sequence：
+ * sequence == pos 表示slot可寫入；sequence == pos + 1 表示已寫入等待背景執行緒處理。
+ *
+ * buffer滿的時候依FullPolicy處理：
+ * BLOCK  等待背景執行緒清出空間。
+ * DROP   直接丟掉這筆log。
+ * SAMPLE 每sampleRate筆等待一筆，其餘丟掉。
+ * 不論哪種策略，error('E')都一定會等待，不會被丟掉。被丟掉的筆數會在下一批寫出一行warning。
+ *
+ * close()把tail加上CLOSED，之後publish()都搶不到slot而回傳false；在這之前搶到slot的log，
+ * 即使呼叫端還沒填完內容，背景執行緒也會等它填完寫出才結束，不會默默遺失。
+ *
+ * @author 阿昌
+ */
+public class AsyncAppender {
+	public enum FullPolicy {
+		BLOCK, DROP, SAMPLE
+	}
+
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long CLOSED = 1L << 62; // 加在tail上表示已關閉
+
+	private final LogSink sink;
+	private final LogEvent[] events;
+	private final AtomicLongArray sequences;
+	private final int capacity;
+	private final int mask;
+	private final FullPolicy fullPolicy;
+	private final int sampleRate;
+	private final AtomicLong tail = new AtomicLong(); // 下一個要寫入的位置
+	private volatile long head = 0; // 下一個要讀出的位置，只有背景執行緒會修改
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong fullCount = new AtomicLong();
+	private final LogEvent notice = new LogEvent();
+	private final Thread writer;
+	private volatile boolean running = true;
+	private volatile boolean sleeping = false;
+
+	/**
+	 * @param name       背景執行緒名稱
+	 * @param sink       輸出目標
+	 * @param bufferSize ring buffer大小，會調整成2的次方
+	 * @param fullPolicy buffer滿時的處理方式
+	 * @param sampleRate FullPolicy.SAMPLE時，每幾筆保留一筆
+	 */
+	public AsyncAppender(String name, LogSink sink, int bufferSize, FullPolicy fullPolicy, int sampleRate) {
+		int size = 2;
+		while (size < bufferSize && size < (1 << 30)) {
+			size <<= 1;
+		}
+		this.sink = sink;
+		this.capacity = size;
+		this.mask = size - 1;
+		this.fullPolicy = fullPolicy == null ? FullPolicy.BLOCK : fullPolicy;
+		this.sampleRate = Math.max(1, sampleRate);
+		this.events = new LogEvent[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			events[i] = new LogEvent();
+			sequences.set(i, i);
+		}
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runWriter();
+			}
+		}, name);
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * 把一筆log放進ring buffer。
+	 *
+	 * @return false表示已被丟掉，或AsyncAppender已經關閉(呼叫端可以改成同步寫出)。
+	 */
+	public boolean publish(long time, char level, String classMethod, String message) {
+		boolean mayWait = false;
+		boolean decided = false;
+		long pos;
+		int index;
+		while (true) {
+			pos = tail.get();
+			if (pos >= CLOSED) {
+				return false;
+			}
+			index = (int) pos & mask;
+			long seq = sequences.get(index);
+			if (seq == pos) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+			} else if (seq < pos) {
+				// buffer已滿，一次publish只決定一次要等待還是丟掉
+				if (!decided) {
+					decided = true;
+					mayWait = level == 'E' || fullPolicy == FullPolicy.BLOCK
+							|| (fullPolicy == FullPolicy.SAMPLE && fullCount.incrementAndGet() % sampleRate == 0);
+				}
+				if (!mayWait) {
+					dropped.incrementAndGet();
+					return false;
+				}
+				LockSupport.unpark(writer);
+				LockSupport.parkNanos(this, WAIT_NANOS);
+			}
+		}
+		events[index].set(time, level, classMethod, message);
+		sequences.set(index, pos + 1);
+		if (sleeping) {
+			LockSupport.unpark(writer);
+		}
+		return true;
+	}
+
+	/**
+	 * 等待目前已放進buffer的log都寫出，最多等timeoutMillis。
+	 */
+	public boolean flush(long timeoutMillis) {
+		long target = tail.get() & ~CLOSED;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (head < target) {
+			if (!writer.isAlive() || System.nanoTime() > deadline) {
+				return false;
+			}
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(this, WAIT_NANOS);
+		}
+		return true;
+	}
+
+	/**
+	 * 停止接收新的log，並等待背景執行緒把buffer裡剩下的log寫完。
+	 */
+	public void close() {
+		long pos = tail.get();
+		while (pos < CLOSED && !tail.compareAndSet(pos, pos + CLOSED)) {
+			pos = tail.get();
+		}
+		running = false;
+		LockSupport.unpark(writer);
+		if (Thread.currentThread() != writer) {
+			try {
+				writer.join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (!writer.isAlive()) {
+				// 背景執行緒結束後才累計的丟棄筆數，由關閉的執行緒補寫
+				drain();
+			}
+		}
+	}
+
+	private void runWriter() {
+		while (true) {
+			if (drain() > 0) {
+				continue;
+			}
+			if (!running) {
+				// 關閉前搶到slot的log都寫出才結束，呼叫端還在填內容時稍等一下
+				if (head >= (tail.get() & ~CLOSED)) {
+					break;
+				}
+				LockSupport.parkNanos(this, WAIT_NANOS);
+				continue;
+			}
+			sleeping = true;
+			if (sequences.get((int) head & mask) != head + 1) {
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}
+			sleeping = false;
+		}
+	}
+
+	// 取出目前可讀的log交給sink，整批寫完才flush一次，回傳寫出的筆數。
+	private int drain() {
+		long h = head;
+		int count = 0;
+		long droppedCount = dropped.get();
+		if (droppedCount > 0) {
+			dropped.addAndGet(-droppedCount);
+			notice.set(System.currentTimeMillis(), 'W', AsyncAppender.class.getSimpleName(),
+					"Log buffer is full, " + droppedCount + " log events were dropped.");
+			write(notice);
+			count++;
+		}
+		while (count < capacity) {
+			int index = (int) h & mask;
+			if (sequences.get(index) != h + 1) {
+				break;
+			}
+			LogEvent event = events[index];
+			write(event);
+			event.clear();
+			sequences.set(index, h + capacity);
+			h++;
+			count++;
+		}
+		head = h;
+		if (count > 0) {
+			try {
+				sink.flush();
+			} catch (IOException e) {
+				// LogSink自己處理錯誤，這裡只確保背景執行緒不會中斷
+			}
+		}
+		return count;
+	}
+
+	private void write(LogEvent event) {
+		try {
+			sink.write(event);
+		} catch (IOException | RuntimeException e) {
+			// LogSink自己處理錯誤，這裡只確保背景執行緒不會中斷
+		}
+	}
+}
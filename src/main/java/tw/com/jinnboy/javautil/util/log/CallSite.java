@@ -0,0 +1,74 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.lang.StackWalker.StackFrame;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 找出呼叫Log的類別和函式名稱，回傳「Class-method」字串。
+ *
+ * 原本用Thread.currentThread().getStackTrace()會把整個stack都填好，很耗時。
+ * 改用StackWalker只往上走到第一個不是Log相關類別的frame就停止，
+ * 而且「Class-method」字串依類別和函式名稱暫存起來，同一個呼叫點不會每次重新組字串。
+ *
+ * Log相關類別是指tw.com.jinnboy.javautil.util.Log(含內部類別)和tw.com.jinnboy.javautil.util.log套件裡的類別。
+ *
+ * @author 阿昌
+ */
+public final class CallSite {
+	private static final String LOG_CLASS_PREFIX = "tw.com.jinnboy.javautil.util.Log";
+	private static final String LOG_PACKAGE_PREFIX = CallSite.class.getPackage().getName() + '.';
+	private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+	private static final ClassValue<Boolean> LOGGING_CLASSES = new ClassValue<>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			String name = type.getName();
+			return name.startsWith(LOG_CLASS_PREFIX) && (name.length() == LOG_CLASS_PREFIX.length()
+					|| name.charAt(LOG_CLASS_PREFIX.length()) == '$') || name.startsWith(LOG_PACKAGE_PREFIX);
+		}
+	};
+
+	// 每個類別各自暫存「函式名稱→Class-method字串」
+	private static final ClassValue<ConcurrentHashMap<String, String>> NAMES = new ClassValue<>() {
+		@Override
+		protected ConcurrentHashMap<String, String> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>(8);
+		}
+	};
+
+	private static final Function<Stream<StackFrame>, StackFrame> FIRST_CALLER = new Function<>() {
+		@Override
+		public StackFrame apply(Stream<StackFrame> frames) {
+			return frames.filter(frame -> !LOGGING_CLASSES.get(frame.getDeclaringClass())).findFirst().orElse(null);
+		}
+	};
+
+	private CallSite() {
+	}
+
+	/**
+	 * 回傳第一個不是Log相關類別的呼叫者，格式為「Class-method」，找不到時回傳null。
+	 */
+	public static String resolve() {
+		StackFrame frame = WALKER.walk(FIRST_CALLER);
+		if (frame == null) {
+			return null;
+		}
+		Class<?> type = frame.getDeclaringClass();
+		String methodName = frame.getMethodName();
+		ConcurrentHashMap<String, String> names = NAMES.get(type);
+		String name = names.get(methodName);
+		if (name == null) {
+			name = simpleName(type.getName()) + '-' + methodName;
+			names.putIfAbsent(methodName, name);
+		}
+		return name;
+	}
+
+	private static String simpleName(String name) {
+		int i = name.lastIndexOf('.');
+		return i != -1 ? name.substring(i + 1) : name;
+	}
+}
@@ -0,0 +1,81 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 用FileChannel以append方式寫log檔。
+ *
+ * write()先累積在buffer，buffer滿了或flush()時才真正寫到檔案，非同步模式時一批log只需要一次write。
+ *
+ * @author 阿昌
+ */
+public class ChannelLogOutput implements LogOutput {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private long size;
+
+	public ChannelLogOutput(Path path) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		this.size = channel.size();
+	}
+
+	@Override
+	public boolean write(ByteBuffer buf) throws IOException {
+		size += buf.remaining();
+		if (buf.remaining() > buffer.remaining()) {
+			flush();
+		}
+		if (buf.remaining() > buffer.remaining()) {
+			writeFully(buf);
+		} else {
+			buffer.put(buf);
+		}
+		return true;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (buffer.position() > 0) {
+			buffer.flip();
+			try {
+				writeFully(buffer);
+			} finally {
+				buffer.clear();
+			}
+		}
+	}
+
+	private void writeFully(ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public Path getPath() {
+		return path;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 把同一筆log依序交給多個LogSink，例如寫檔之外再把error印到System.err。
+ *
+ * 其中一個LogSink失敗時只印出錯誤，不影響其他LogSink。
+ * add()、remove()會複製一份新的陣列(copy-on-write)，寫log時不需要lock。
+ *
+ * @author 阿昌
+ */
+public class CompositeAppender implements LogSink {
+	private static final ThreadLocal<LogEvent> LOCAL_EVENT = new ThreadLocal<LogEvent>() {
+		@Override
+		protected LogEvent initialValue() {
+			return new LogEvent();
+		}
+	};
+
+	private volatile LogSink[] sinks;
+
+	public CompositeAppender(LogSink... sinks) {
+		this.sinks = sinks.clone();
+	}
+
+	public synchronized void add(LogSink sink) {
+		LogSink[] array = Arrays.copyOf(sinks, sinks.length + 1);
+		array[sinks.length] = sink;
+		sinks = array;
+	}
+
+	public synchronized boolean remove(LogSink sink) {
+		LogSink[] array = sinks;
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == sink) {
+				LogSink[] newArray = new LogSink[array.length - 1];
+				System.arraycopy(array, 0, newArray, 0, i);
+				System.arraycopy(array, i + 1, newArray, i, array.length - i - 1);
+				sinks = newArray;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 同步寫出一筆log並flush，使用執行緒自己的LogEvent，不會產生暫時物件。
+	 */
+	public void write(long time, char level, String classMethod, String message) {
+		LogEvent event = LOCAL_EVENT.get();
+		event.set(time, level, classMethod, message);
+		try {
+			write(event);
+			flush();
+		} finally {
+			event.clear();
+		}
+	}
+
+	@Override
+	public void write(LogEvent event) {
+		for (LogSink sink : sinks) {
+			try {
+				sink.write(event);
+			} catch (IOException | RuntimeException e) {
+				System.out.println(String.format("CompositeAppender.write(%s) has error: %s", sink, e));
+			}
+		}
+	}
+
+	@Override
+	public void flush() {
+		for (LogSink sink : sinks) {
+			try {
+				sink.flush();
+			} catch (IOException | RuntimeException e) {
+				System.out.println(String.format("CompositeAppender.flush(%s) has error: %s", sink, e));
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把達到minLevel的log以文字格式印到console，Logger預設用它把error印到System.err。
+ *
+ * @author 阿昌
+ */
+public class ConsoleAppender implements LogSink {
+	private final PrintStream out;
+	private final LogLevel minLevel;
+
+	public ConsoleAppender(PrintStream out, LogLevel minLevel) {
+		this.out = out;
+		this.minLevel = minLevel;
+	}
+
+	@Override
+	public void write(LogEvent event) {
+		if (LogLevel.of(event.getLevel()).ordinal() >= minLevel.ordinal()) {
+			ByteBuffer buf = LogFormatter.get().format(event.getTime(), event.getLevel(), event.getClassMethod(),
+					event.getMessage());
+			out.print(new String(buf.array(), buf.position(), buf.remaining(), StandardCharsets.UTF_8));
+			out.flush();
+		}
+	}
+
+	@Override
+	public void flush() {
+		// write()印完就flush，大部分的log不會印到console，這裡不用每批都flush
+	}
+}
@@ -0,0 +1,282 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把LogLayout.JSON或LogLayout.BINARY格式的log讀回LogEvent。
+ *
+ * decode()從buf目前的position讀一筆，成功時把position移到下一筆並回傳true；
+ * 資料不完整(例如還在寫的檔案)或遇到mmap預先配置的0時回傳false，position不變，之後補齊資料再呼叫即可。
+ *
+ * @author 阿昌
+ */
+public final class LogDecoder {
+	private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+	// 長度前綴之後最少要有的bytes：long 毫秒 + byte level + int site長度 + int message長度
+	private static final int MIN_RECORD_LENGTH = 8 + 1 + 4 + 4;
+
+	private LogDecoder() {
+	}
+
+	/**
+	 * 依檔案的第一個byte判斷格式：'{'為JSON，'['為TEXT，其餘視為BINARY。
+	 */
+	public static LogLayout detect(ByteBuffer buf) {
+		if (!buf.hasRemaining()) {
+			return LogLayout.TEXT;
+		}
+		byte b = buf.get(buf.position());
+		return b == '{' ? LogLayout.JSON : b == '[' ? LogLayout.TEXT : LogLayout.BINARY;
+	}
+
+	public static boolean decode(LogLayout layout, ByteBuffer buf, LogEvent event) {
+		switch (layout) {
+		case JSON:
+			return decodeJson(buf, event);
+		case BINARY:
+			return decodeBinary(buf, event);
+		default:
+			throw new IllegalArgumentException("LogDecoder only supports JSON and BINARY layouts.");
+		}
+	}
+
+	/**
+	 * 讀出整個檔案的log，格式依檔案內容自動判斷。
+	 */
+	public static List<LogEvent> readAll(Path path) throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(path));
+		LogLayout layout = detect(buf);
+		List<LogEvent> events = new ArrayList<>();
+		LogEvent event = new LogEvent();
+		while (decode(layout, buf, event)) {
+			events.add(event);
+			event = new LogEvent();
+		}
+		return events;
+	}
+
+	/**
+	 * [int 長度][long 毫秒][byte level][int site長度][site][int message長度][message]
+	 */
+	public static boolean decodeBinary(ByteBuffer buf, LogEvent event) {
+		int start = buf.position();
+		if (buf.limit() - start < 4) {
+			return false;
+		}
+		int length = buf.getInt(start);
+		if (length == 0) {
+			return false; // mmap預先配置還沒寫入的部分
+		}
+		if (length < MIN_RECORD_LENGTH || length > MAX_RECORD_LENGTH) {
+			throw new IllegalStateException("Invalid binary log record length " + length + " at " + start + '.');
+		}
+		if (buf.limit() - start - 4 < length) {
+			return false;
+		}
+		long time = buf.getLong(start + 4);
+		char level = (char) buf.get(start + 12);
+		int end = start + 4 + length;
+		int p = start + 13;
+		int siteLength = buf.getInt(p);
+		p += 4;
+		String site = null;
+		if (siteLength >= 0) {
+			checkField(siteLength, p, end - 4, start);
+			site = utf8(buf, p, siteLength);
+			p += siteLength;
+		}
+		int messageLength = buf.getInt(p);
+		p += 4;
+		checkField(messageLength, p, end, start);
+		String message = utf8(buf, p, messageLength);
+		event.set(time, level, site, message);
+		buf.position(end);
+		return true;
+	}
+
+	// 欄位長度不能超出這筆record，否則是檔案損毀
+	private static void checkField(int fieldLength, int offset, int end, int start) {
+		if (fieldLength < 0 || fieldLength > end - offset) {
+			throw new IllegalStateException("Invalid binary log record at " + start + '.');
+		}
+	}
+
+	/**
+	 * 一行一筆的JSON，只讀ts、level、site、msg四個欄位，其他欄位略過。
+	 */
+	public static boolean decodeJson(ByteBuffer buf, LogEvent event) {
+		int start = buf.position();
+		int end = -1;
+		for (int i = start, limit = buf.limit(); i < limit; i++) {
+			byte b = buf.get(i);
+			if (b == '\n') {
+				end = i;
+				break;
+			} else if (b == 0 && i == start) {
+				return false; // mmap預先配置還沒寫入的部分
+			}
+		}
+		if (end == -1) {
+			return false;
+		}
+		JsonReader reader = new JsonReader(buf, start, end);
+		long time = 0;
+		char level = 'I';
+		String site = null;
+		String message = null;
+		reader.expect('{');
+		if (!reader.skipIf('}')) {
+			do {
+				String key = reader.readString();
+				reader.expect(':');
+				switch (key) {
+				case "ts":
+					time = reader.readLong();
+					break;
+				case "level":
+					String str = reader.readString();
+					level = str.isEmpty() ? 'I' : str.charAt(0);
+					break;
+				case "site":
+					site = reader.readString();
+					break;
+				case "msg":
+					message = reader.readString();
+					break;
+				default:
+					reader.skipValue();
+				}
+			} while (reader.skipIf(','));
+			reader.expect('}');
+		}
+		event.set(time, level, site, message);
+		buf.position(end + 1);
+		return true;
+	}
+
+	private static String utf8(ByteBuffer buf, int offset, int length) {
+		if (buf.hasArray()) {
+			return new String(buf.array(), buf.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buf.get(offset + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// 只處理LogFormatter輸出的扁平JSON物件：字串、數字、true/false/null。
+	private static class JsonReader {
+		private final ByteBuffer buf;
+		private final int end;
+		private int p;
+
+		JsonReader(ByteBuffer buf, int start, int end) {
+			this.buf = buf;
+			this.p = start;
+			this.end = end;
+		}
+
+		private void skipSpaces() {
+			while (p < end && buf.get(p) <= ' ') {
+				p++;
+			}
+		}
+
+		void expect(char ch) {
+			skipSpaces();
+			if (p >= end || buf.get(p) != ch) {
+				throw new IllegalStateException("Invalid JSON log record, expect '" + ch + "' at " + p + '.');
+			}
+			p++;
+		}
+
+		boolean skipIf(char ch) {
+			skipSpaces();
+			if (p < end && buf.get(p) == ch) {
+				p++;
+				return true;
+			}
+			return false;
+		}
+
+		long readLong() {
+			skipSpaces();
+			boolean negative = p < end && buf.get(p) == '-';
+			if (negative) {
+				p++;
+			}
+			long value = 0;
+			while (p < end && buf.get(p) >= '0' && buf.get(p) <= '9') {
+				value = value * 10 + (buf.get(p++) - '0');
+			}
+			return negative ? -value : value;
+		}
+
+		void skipValue() {
+			skipSpaces();
+			if (p < end && buf.get(p) == '"') {
+				readString();
+				return;
+			}
+			while (p < end && buf.get(p) != ',' && buf.get(p) != '}') {
+				p++;
+			}
+		}
+
+		String readString() {
+			expect('"');
+			int start = p;
+			StringBuilder sb = null;
+			while (p < end) {
+				byte b = buf.get(p);
+				if (b == '"') {
+					String str = utf8(buf, start, p - start);
+					p++;
+					return sb == null ? str : sb.append(str).toString();
+				}
+				if (b == '\\') {
+					if (sb == null) {
+						sb = new StringBuilder(p - start + 16);
+					}
+					sb.append(utf8(buf, start, p - start));
+					p++;
+					char ch = (char) buf.get(p++);
+					switch (ch) {
+					case 'n':
+						sb.append('\n');
+						break;
+					case 'r':
+						sb.append('\r');
+						break;
+					case 't':
+						sb.append('\t');
+						break;
+					case 'b':
+						sb.append('\b');
+						break;
+					case 'f':
+						sb.append('\f');
+						break;
+					case 'u':
+						sb.append((char) Integer.parseInt(utf8(buf, p, 4), 16));
+						p += 4;
+						break;
+					default:
+						sb.append(ch);
+					}
+					start = p;
+					continue;
+				}
+				p++;
+			}
+			throw new IllegalStateException("Invalid JSON log record, unterminated string at " + start + '.');
+		}
+	}
+}
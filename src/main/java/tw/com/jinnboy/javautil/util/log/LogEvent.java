@@ -0,0 +1,47 @@
+package tw.com.jinnboy.javautil.util.log;
+
+/**
+ * 一筆log紀錄。
+ * 
+ * AsyncAppender會預先建立固定數量的LogEvent重複使用，呼叫端只填入欄位，不做任何格式化。
+ * 
+ * @author 阿昌
+ */
+public class LogEvent {
+	private long time;
+	private char level;
+	private String classMethod;
+	private String message;
+
+	public LogEvent() {
+	}
+
+	void set(long time, char level, String classMethod, String message) {
+		this.time = time;
+		this.level = level;
+		this.classMethod = classMethod;
+		this.message = message;
+	}
+
+	// 寫出後清掉參考，避免ring buffer一直抓著已寫出的字串。
+	void clear() {
+		this.classMethod = null;
+		this.message = null;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public char getLevel() {
+		return level;
+	}
+
+	public String getClassMethod() {
+		return classMethod;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+}
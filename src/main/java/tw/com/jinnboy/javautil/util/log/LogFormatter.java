@@ -0,0 +1,301 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+
+/**
+ * 把一筆log直接編碼成UTF-8的bytes，文字格式為「[yyyy-MM-dd HH:mm:ss] L Class-method: message\r\n」，
+ * 另外也可以輸出JSON或binary格式(請見LogLayout)。
+ *
+ * 每個執行緒各自重複使用一個LogFormatter(ThreadLocal)，寫log時不會產生任何暫時物件：
+ * 1.時間前綴「[yyyy-MM-dd HH:mm:ss] 」只在秒數改變時重新計算，不經過SimpleDateFormat和Date。
+ * 2.classMethod和message逐字元編碼成UTF-8，直接寫進重複使用的ByteBuffer，不產生中間的String。
+ *
+ * @author 阿昌
+ */
+public final class LogFormatter {
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+	private static final TimeZone TIME_ZONE = TimeZone.getDefault();
+
+	private static final ThreadLocal<LogFormatter> LOCAL = new ThreadLocal<LogFormatter>() {
+		@Override
+		protected LogFormatter initialValue() {
+			return new LogFormatter();
+		}
+	};
+
+	private static final byte[] JSON_TS = "{\"ts\":".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] JSON_TIME = ",\"time\":\"".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] JSON_LEVEL = "\",\"level\":\"".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] JSON_SITE = "\",\"site\":\"".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] JSON_MSG = "\",\"msg\":\"".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+	private final byte[] timePrefix = "[yyyy-MM-dd HH:mm:ss] ".getBytes(StandardCharsets.US_ASCII);
+	private long cachedSecond = Long.MIN_VALUE;
+
+	private LogFormatter() {
+	}
+
+	/**
+	 * 取得目前執行緒的LogFormatter。
+	 */
+	public static LogFormatter get() {
+		return LOCAL.get();
+	}
+
+	/**
+	 * 依layout格式化一筆log，回傳的ByteBuffer已flip好可以直接寫出，內容在下一次format前有效。
+	 */
+	public ByteBuffer format(LogLayout layout, long time, char level, String classMethod, String message) {
+		switch (layout) {
+		case JSON:
+			return formatJson(time, level, classMethod, message);
+		case BINARY:
+			return formatBinary(time, level, classMethod, message);
+		default:
+			return format(time, level, classMethod, message);
+		}
+	}
+
+	/**
+	 * 格式化成文字格式的一筆log，回傳的ByteBuffer已flip好可以直接寫出，內容在下一次format前有效。
+	 */
+	public ByteBuffer format(long time, char level, String classMethod, String message) {
+		ByteBuffer buf = reset();
+		buf.put(timePrefix(time));
+		buf.put((byte) level);
+		if (classMethod != null && classMethod.length() > 0) {
+			buf.put((byte) ' ');
+			buf = encode(buf, classMethod);
+		}
+		buf = ensure(buf, 2);
+		buf.put((byte) ':');
+		buf.put((byte) ' ');
+		buf = encode(buf, message == null ? "null" : message);
+		buf = ensure(buf, 2);
+		buf.put((byte) '\r');
+		buf.put((byte) '\n');
+		buf.flip();
+		return buf;
+	}
+
+	/**
+	 * 格式化成一行JSON，例如{"ts":1648627200000,"time":"2022-03-30 16:00:00","level":"I","site":"App-main","msg":"..."}。
+	 */
+	public ByteBuffer formatJson(long time, char level, String classMethod, String message) {
+		ByteBuffer buf = reset();
+		buf.put(JSON_TS);
+		putLong(buf, time);
+		buf.put(JSON_TIME);
+		buf.put(timePrefix(time), 1, 19);
+		buf.put(JSON_LEVEL);
+		buf.put((byte) level);
+		if (classMethod != null && classMethod.length() > 0) {
+			buf.put(JSON_SITE);
+			buf = encodeJson(buf, classMethod);
+		}
+		buf = ensure(buf, JSON_MSG.length);
+		buf.put(JSON_MSG);
+		buf = encodeJson(buf, message == null ? "null" : message);
+		buf = ensure(buf, 3);
+		buf.put((byte) '"');
+		buf.put((byte) '}');
+		buf.put((byte) '\n');
+		buf.flip();
+		return buf;
+	}
+
+	/**
+	 * 格式化成長度前綴的binary格式，欄位說明請見LogLayout.BINARY。
+	 */
+	public ByteBuffer formatBinary(long time, char level, String classMethod, String message) {
+		ByteBuffer buf = reset();
+		buf.putInt(0); // 長度最後再補
+		buf.putLong(time);
+		buf.put((byte) level);
+		if (classMethod == null) {
+			buf.putInt(-1);
+		} else {
+			buf = putLengthPrefixed(buf, classMethod);
+		}
+		buf = ensure(buf, 4);
+		buf = putLengthPrefixed(buf, message == null ? "null" : message);
+		buf.putInt(0, buf.position() - 4);
+		buf.flip();
+		return buf;
+	}
+
+	private ByteBuffer reset() {
+		ByteBuffer buf = buffer;
+		if (buf.capacity() > MAX_RETAINED_CAPACITY) {
+			// 偶爾出現的超長log不要一直佔著記憶體
+			buf = buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+		}
+		buf.clear();
+		return buf;
+	}
+
+	private ByteBuffer putLengthPrefixed(ByteBuffer buf, String str) {
+		int start = buf.position();
+		buf.putInt(0);
+		buf = encode(buf, str);
+		buf.putInt(start, buf.position() - start - 4);
+		return buf;
+	}
+
+	// 不透過Long.toString，直接寫出十進位數字。
+	private static void putLong(ByteBuffer buf, long value) {
+		if (value < 0) {
+			buf.put((byte) '-');
+			if (value == Long.MIN_VALUE) {
+				buf.put("9223372036854775808".getBytes(StandardCharsets.US_ASCII));
+				return;
+			}
+			value = -value;
+		}
+		int start = buf.position();
+		do {
+			buf.put((byte) ('0' + value % 10));
+			value /= 10;
+		} while (value > 0);
+		for (int i = start, j = buf.position() - 1; i < j; i++, j--) {
+			byte b = buf.get(i);
+			buf.put(i, buf.get(j));
+			buf.put(j, b);
+		}
+	}
+
+	// 時間前綴只在秒數改變時重新計算
+	private byte[] timePrefix(long time) {
+		long second = Math.floorDiv(time, 1000L);
+		if (second != cachedSecond) {
+			cachedSecond = second;
+			long local = Math.floorDiv(time + TIME_ZONE.getOffset(time), 1000L);
+			long days = Math.floorDiv(local, 86400L);
+			int secondOfDay = (int) Math.floorMod(local, 86400L);
+			// days轉換成年月日，演算法參考Howard Hinnant的days_from_civil/civil_from_days
+			long z = days + 719468;
+			long era = (z >= 0 ? z : z - 146096) / 146097;
+			long doe = z - era * 146097;
+			long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+			long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+			long mp = (5 * doy + 2) / 153;
+			int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+			int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+			int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+			byte[] b = timePrefix;
+			put4(b, 1, year);
+			put2(b, 6, month);
+			put2(b, 9, day);
+			put2(b, 12, secondOfDay / 3600);
+			put2(b, 15, secondOfDay / 60 % 60);
+			put2(b, 18, secondOfDay % 60);
+		}
+		return timePrefix;
+	}
+
+	private static void put2(byte[] b, int offset, int value) {
+		b[offset] = (byte) ('0' + value / 10);
+		b[offset + 1] = (byte) ('0' + value % 10);
+	}
+
+	private static void put4(byte[] b, int offset, int value) {
+		put2(b, offset, value / 100 % 100);
+		put2(b, offset + 2, value % 100);
+	}
+
+	private ByteBuffer ensure(ByteBuffer buf, int required) {
+		if (buf.remaining() >= required) {
+			return buf;
+		}
+		int capacity = buf.capacity();
+		while (capacity - buf.position() < required) {
+			capacity <<= 1;
+		}
+		ByteBuffer newBuffer = ByteBuffer.allocate(capacity);
+		buf.flip();
+		newBuffer.put(buf);
+		buffer = newBuffer;
+		return newBuffer;
+	}
+
+	// 逐字元編碼成UTF-8，無法配對的surrogate以'?'取代。
+	private ByteBuffer encode(ByteBuffer buf, String str) {
+		return encode(buf, str, 0, str.length());
+	}
+
+	private ByteBuffer encode(ByteBuffer buf, String str, int from, int to) {
+		buf = ensure(buf, (to - from) * 3);
+		byte[] b = buf.array();
+		int p = buf.position();
+		for (int i = from; i < to; i++) {
+			char ch = str.charAt(i);
+			if (ch < 0x80) {
+				b[p++] = (byte) ch;
+			} else if (ch < 0x800) {
+				b[p++] = (byte) (0xC0 | (ch >> 6));
+				b[p++] = (byte) (0x80 | (ch & 0x3F));
+			} else if (Character.isHighSurrogate(ch) && i + 1 < to && Character.isLowSurrogate(str.charAt(i + 1))) {
+				int cp = Character.toCodePoint(ch, str.charAt(++i));
+				b[p++] = (byte) (0xF0 | (cp >> 18));
+				b[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+				b[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+				b[p++] = (byte) (0x80 | (cp & 0x3F));
+			} else if (Character.isSurrogate(ch)) {
+				b[p++] = '?';
+			} else {
+				b[p++] = (byte) (0xE0 | (ch >> 12));
+				b[p++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+				b[p++] = (byte) (0x80 | (ch & 0x3F));
+			}
+		}
+		buf.position(p);
+		return buf;
+	}
+
+	// 和encode相同，另外依JSON規則跳脫雙引號、反斜線和控制字元。
+	private ByteBuffer encodeJson(ByteBuffer buf, String str) {
+		int len = str.length();
+		int start = 0;
+		for (int i = 0; i < len; i++) {
+			char ch = str.charAt(i);
+			if (ch == '"' || ch == '\\' || ch < 0x20) {
+				if (start < i) {
+					buf = encode(buf, str, start, i);
+				}
+				buf = ensure(buf, 6);
+				buf.put((byte) '\\');
+				switch (ch) {
+				case '"':
+				case '\\':
+					buf.put((byte) ch);
+					break;
+				case '\n':
+					buf.put((byte) 'n');
+					break;
+				case '\r':
+					buf.put((byte) 'r');
+					break;
+				case '\t':
+					buf.put((byte) 't');
+					break;
+				default:
+					buf.put((byte) 'u');
+					buf.put((byte) '0');
+					buf.put((byte) '0');
+					buf.put(HEX[ch >> 4]);
+					buf.put(HEX[ch & 0xF]);
+				}
+				start = i + 1;
+			}
+		}
+		if (start < len) {
+			buf = encode(buf, str, start, len);
+		}
+		return buf;
+	}
+}
@@ -0,0 +1,31 @@
+package tw.com.jinnboy.javautil.util.log;
+
+/**
+ * log檔的輸出格式，由Config的LogFormat設定。
+ *
+ * TEXT   [yyyy-MM-dd HH:mm:ss] L Class-method: message
+ * JSON   每行一筆JSON，{"ts":毫秒,"time":"yyyy-MM-dd HH:mm:ss","level":"L","site":"Class-method","msg":"message"}
+ * BINARY 每筆為[int 長度][long 毫秒][byte level][int site長度][site UTF-8][int message長度][message UTF-8]，
+ *        長度都是big-endian，長度不含自己的4 bytes，site為null時長度為-1。
+ *
+ * JSON和BINARY可以用LogDecoder讀回來，或用LogTail轉成文字查看。
+ *
+ * @author 阿昌
+ */
+public enum LogLayout {
+	TEXT, JSON, BINARY;
+
+	/**
+	 * 依名稱取得LogLayout，不分大小寫，空白或無法辨識時回傳TEXT。
+	 */
+	public static LogLayout of(String name) {
+		if (name != null) {
+			for (LogLayout layout : values()) {
+				if (layout.name().equalsIgnoreCase(name.trim())) {
+					return layout;
+				}
+			}
+		}
+		return TEXT;
+	}
+}
@@ -0,0 +1,57 @@
+package tw.com.jinnboy.javautil.util.log;
+
+/**
+ * log的等級，由低到高為TRACE、DEBUG、INFO、WARN、ERROR，寫到檔案時只輸出代表的字元(T、D、I、W、E)。
+ *
+ * @author 阿昌
+ */
+public enum LogLevel {
+	TRACE('T'), DEBUG('D'), INFO('I'), WARN('W'), ERROR('E');
+
+	private final char code;
+
+	private LogLevel(char code) {
+		this.code = code;
+	}
+
+	public char getCode() {
+		return code;
+	}
+
+	/**
+	 * 依代表字元取得LogLevel，不分大小寫，無法辨識時回傳INFO。
+	 */
+	public static LogLevel of(char code) {
+		switch (Character.toUpperCase(code)) {
+		case 'T':
+			return TRACE;
+		case 'D':
+			return DEBUG;
+		case 'W':
+			return WARN;
+		case 'E':
+			return ERROR;
+		default:
+			return INFO;
+		}
+	}
+
+	/**
+	 * 依名稱或代表字元取得LogLevel，例如「DEBUG」、「warning」、「W」，空白或無法辨識時回傳defaultLevel。
+	 */
+	public static LogLevel of(String name, LogLevel defaultLevel) {
+		if (name == null || name.trim().isEmpty()) {
+			return defaultLevel;
+		}
+		name = name.trim();
+		for (LogLevel level : values()) {
+			if (level.name().equalsIgnoreCase(name)) {
+				return level;
+			}
+		}
+		if ("WARNING".equalsIgnoreCase(name)) {
+			return WARN;
+		}
+		return name.length() == 1 ? of(name.charAt(0)) : defaultLevel;
+	}
+}
@@ -0,0 +1,31 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Logger寫出格式化好的bytes的目的地，一個LogOutput對應一個log檔。
+ *
+ * 由Logger在lock裡呼叫，實作不需要自己處理同步。
+ *
+ * @author 阿昌
+ */
+public interface LogOutput extends Closeable {
+	/**
+	 * 寫入一整行log。
+	 *
+	 * @return false表示這個檔案已經放不下這行(例如預先配置的segment已滿)，Logger會換到下一個檔案再寫一次。
+	 */
+	boolean write(ByteBuffer buf) throws IOException;
+
+	void flush() throws IOException;
+
+	/**
+	 * 目前已寫入的bytes數(包含尚未flush的部分)。
+	 */
+	long size();
+
+	Path getPath();
+}
@@ -0,0 +1,289 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import tw.com.jinnboy.javautil.util.Dates;
+import tw.com.jinnboy.javautil.util.Paths;
+
+/**
+ * Logger的切檔規則。
+ *
+ * 檔名沿用logPath的日期符號(例如log/javautil-yyyy-MM-dd.log)，每天一個檔案；
+ * 同一天的檔案超過maxFileSize時，依Paths.nonduplicatedPath的編號規則換到javautil-2022-03-30(2).log、(3).log...
+ *
+ * 關閉的檔案交給背景執行緒處理，不會卡住寫log的執行緒：
+ * 1.compress=true時壓縮成xxx.log.gz並刪除原檔。
+ * 2.maxTotalSize大於0時，同一個logPath產生的所有檔案(含.gz)總大小超過maxTotalSize，就從最舊的開始刪除。
+ *
+ * @author 阿昌
+ */
+public class LogRoller {
+	private static final String GZ = ".gz";
+	private static ExecutorService archiver;
+
+	private final String folder;
+	private final String logPath;
+	private final long maxFileSize;
+	private final boolean compress;
+	private final long maxTotalSize;
+	private final Pattern filePattern;
+
+	/**
+	 * @param folder       logPath是相對路徑時的父目錄
+	 * @param logPath      含日期符號的log路徑
+	 * @param maxFileSize  單一檔案的大小上限，0表示只依日期切檔
+	 * @param compress     關閉的檔案是否壓縮成.gz
+	 * @param maxTotalSize 所有檔案的總大小上限，0表示不限制
+	 */
+	public LogRoller(String folder, String logPath, long maxFileSize, boolean compress, long maxTotalSize) {
+		this.folder = folder;
+		this.logPath = logPath;
+		this.maxFileSize = maxFileSize;
+		this.compress = compress;
+		this.maxTotalSize = maxTotalSize;
+		this.filePattern = filePattern(Paths.getName(logPath));
+	}
+
+	/**
+	 * 回傳time當天的第一個檔案，也就是把logPath的日期符號換掉後的路徑。
+	 */
+	public Path basePath(long time) {
+		return Paths.get(folder, Dates.replaceSymbol(logPath, new Date(time)));
+	}
+
+	/**
+	 * 回傳當天應該接著寫的檔案：最後一個編號、尚未壓縮且還沒超過大小上限的檔案，否則回傳下一個編號。
+	 */
+	public Path currentPath(Path base) {
+		Path last = null;
+		if (used(base)) {
+			last = base;
+			for (int n = 2; n < 1000; n++) {
+				Path path = Paths.numberedPath(base, "", n);
+				if (!used(path)) {
+					break;
+				}
+				last = path;
+			}
+		}
+		if (last == null) {
+			return base;
+		}
+		try {
+			if (Files.exists(last) && (maxFileSize <= 0 || Files.size(last) < maxFileSize)) {
+				return last;
+			}
+		} catch (IOException e) {
+		}
+		return nextPath(base);
+	}
+
+	/**
+	 * 回傳當天下一個還沒用過的編號檔名，已壓縮成.gz的編號也算用過。
+	 */
+	public Path nextPath(Path base) {
+		if (!used(base)) {
+			return base;
+		}
+		for (int n = 2; n < 1000; n++) {
+			Path path = Paths.numberedPath(base, "", n);
+			if (!used(path)) {
+				return path;
+			}
+		}
+		return base;
+	}
+
+	public boolean shouldRoll(LogOutput output) {
+		return maxFileSize > 0 && output.size() >= maxFileSize;
+	}
+
+	/**
+	 * 檔案已關閉，交給背景執行緒壓縮及清除超過總大小的舊檔。
+	 *
+	 * @param path   已關閉的檔案
+	 * @param active 目前正在寫的檔案，不會被刪除
+	 */
+	public void closed(final Path path, final Path active) {
+		if (!compress && maxTotalSize <= 0) {
+			return;
+		}
+		archiver().execute(new Runnable() {
+			@Override
+			public void run() {
+				if (compress) {
+					gzip(path);
+				}
+				if (maxTotalSize > 0) {
+					retain(path.toAbsolutePath().getParent(), active);
+				}
+			}
+		});
+	}
+
+	private static boolean used(Path path) {
+		return Files.exists(path) || Files.exists(gzPath(path));
+	}
+
+	private static Path gzPath(Path path) {
+		return path.resolveSibling(path.getFileName().toString() + GZ);
+	}
+
+	// 先壓縮到.tmp再改名，程式中途結束也不會留下不完整的.gz。
+	private static void gzip(Path path) {
+		if (!Files.exists(path)) {
+			return;
+		}
+		Path gz = gzPath(path);
+		Path tmp = gz.resolveSibling(gz.getFileName().toString() + ".tmp");
+		try {
+			FileTime lastModified = Files.getLastModifiedTime(path);
+			try (InputStream in = Files.newInputStream(path);
+					OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+				byte[] buffer = new byte[64 * 1024];
+				int n;
+				while ((n = in.read(buffer)) > 0) {
+					out.write(buffer, 0, n);
+				}
+			}
+			Files.setLastModifiedTime(tmp, lastModified);
+			Files.move(tmp, gz, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Files.delete(path);
+		} catch (IOException e) {
+			System.out.println(String.format("LogRoller.gzip(%s) has error: %s", path, e));
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException e1) {
+			}
+		}
+	}
+
+	// 從最舊的檔案開始刪除，直到總大小不超過maxTotalSize。
+	private void retain(Path dir, Path active) {
+		List<Path> files = new ArrayList<>();
+		final Map<Path, Long> times = new HashMap<>();
+		long total = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path path : stream) {
+				if (filePattern.matcher(path.getFileName().toString()).matches()) {
+					total += Files.size(path);
+					if (active == null || !path.equals(active.toAbsolutePath())) {
+						files.add(path);
+						times.put(path, Files.getLastModifiedTime(path).toMillis());
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.out.println(String.format("LogRoller.retain(%s) has error: %s", dir, e));
+			return;
+		}
+		Collections.sort(files, new Comparator<Path>() {
+			@Override
+			public int compare(Path a, Path b) {
+				return Long.compare(times.get(a), times.get(b));
+			}
+		});
+		for (Path path : files) {
+			if (total <= maxTotalSize) {
+				break;
+			}
+			try {
+				long size = Files.size(path);
+				Files.delete(path);
+				total -= size;
+			} catch (IOException e) {
+				System.out.println(String.format("LogRoller.retain(%s) has error: %s", path, e));
+			}
+		}
+	}
+
+	/**
+	 * 把含日期符號的檔名轉成regex，用來找出同一個logPath產生的所有檔案(含編號和.gz)。
+	 * 用兩個每一位數字都不同的日期各換一次符號，內容不同的位置就是日期數字。
+	 */
+	static Pattern filePattern(String name) {
+		String extension = "";
+		int i = name.lastIndexOf('.');
+		if (i > 0 && i >= name.length() - 7) { // 和Paths.numberedPath相同，假設附檔名最多6個字
+			extension = name.substring(i);
+			name = name.substring(0, i);
+		}
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(1999, Calendar.NOVEMBER, 11, 11, 11, 11);
+		calendar.set(Calendar.MILLISECOND, 111);
+		String a = Dates.replaceSymbol(name, calendar.getTime());
+		calendar.set(2088, Calendar.FEBRUARY, 2, 2, 2, 2);
+		calendar.set(Calendar.MILLISECOND, 222);
+		String b = Dates.replaceSymbol(name, calendar.getTime());
+		StringBuilder sb = new StringBuilder(name.length() * 2);
+		if (a.length() == b.length()) {
+			int start = 0;
+			for (int j = 0; j < a.length(); j++) {
+				if (a.charAt(j) != b.charAt(j)) {
+					if (start < j) {
+						sb.append(Pattern.quote(a.substring(start, j)));
+					}
+					sb.append("\\d");
+					start = j + 1;
+				}
+			}
+			if (start < a.length()) {
+				sb.append(Pattern.quote(a.substring(start)));
+			}
+		} else {
+			sb.append(Pattern.quote(a));
+		}
+		sb.append("(\\(\\d+\\))?");
+		sb.append(Pattern.quote(extension));
+		sb.append("(\\.gz)?");
+		return Pattern.compile(sb.toString());
+	}
+
+	private static synchronized ExecutorService archiver() {
+		if (archiver == null) {
+			archiver = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Log-archiver");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			final ExecutorService executor = archiver;
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					executor.shutdown();
+					try {
+						executor.awaitTermination(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}));
+		}
+		return archiver;
+	}
+}
@@ -0,0 +1,267 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tw.com.jinnboy.javautil.util.Args;
+import tw.com.jinnboy.javautil.util.Config;
+import tw.com.jinnboy.javautil.util.Log.Logger;
+
+/**
+ * 依category、執行緒或task把log分送到不同的Logger，每個Logger有自己的檔案、lock和buffer，
+ * 同時執行的task不會互相搶同一個lock，log也不會混在同一個檔案裡。
+ *
+ * pathTemplate裡的{key}會換成category、執行緒名稱或task名稱，例如log/javautil-{key}-yyyy-MM-dd.log。
+ * 找不到key時(沒有設定category或task)寫到defaultLogger。
+ *
+ * RouteBy.CATEGORY 依目前的Config.getCategory()。
+ * RouteBy.THREAD   依執行緒名稱。
+ * RouteBy.TASK     由setTask()或runTask()指定目前執行緒的task，沒有指定時寫到defaultLogger。
+ * 每次呼叫都用key到map查Logger，不會把Logger留在執行緒上，close(key)之後其他執行緒再寫入時會重新建立。
+ *
+ * Logger最多保留maxLoggers個，超過時移除最久沒有使用的Logger，執行緒名稱一直變化時也不會無限增加。
+ * 被移除的Logger可能還有執行緒剛用get()取得、正在寫入，所以等CLOSE_DELAY_MILLIS之後才關閉；
+ * 這段時間內再用到同一個key時直接拿回原本的Logger。關閉之後仍拿著它寫入的話會改成同步寫檔，log不會遺失，
+ * 但檔案要等router.close()才會再關閉，get()取得的Logger請立即使用，不要保留。
+ *
+ * Log.info()等函式先用isEnabled()判斷level，關閉的level不必找Logger；
+ * 每次取得Logger只讀取Route的使用順序，只有在建立其他Logger之後第一次使用時才會更新，同一個key的執行緒不會互相搶寫同一個欄位。
+ *
+ * @author 阿昌
+ */
+public class LogRouter {
+	public enum RouteBy {
+		CATEGORY, THREAD, TASK
+	}
+
+	private static final String KEY = "{key}";
+	public static final int DEFAULT_MAX_LOGGERS = 64;
+	static final long CLOSE_DELAY_MILLIS = 1000;
+
+	private final String pathTemplate;
+	private final RouteBy routeBy;
+	private final Logger defaultLogger;
+	private final int maxLoggers;
+	private final ConcurrentHashMap<String, Route> routes = new ConcurrentHashMap<>();
+	private final Map<String, Route> retired = new HashMap<>(); // 被移除、還沒關閉的Logger，只在lock裡使用
+	private final ThreadLocal<String> task = new ThreadLocal<>();
+	private volatile long clock; // 每建立一個Logger加1，作為使用順序
+	private volatile Threshold threshold;
+
+	// 一個key的Logger和最後一次使用時的clock，超過maxLoggers時用來找出最久沒用的Logger
+	private static final class Route {
+		final Logger logger;
+		volatile long lastUsed;
+		long retiredTime; // 被移除的時間，只在lock裡使用
+
+		Route(Logger logger, long lastUsed) {
+			this.logger = logger;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	// 目前的category和它的LogThreshold，category沒有改變時不必再查map
+	private static final class Threshold {
+		final String category;
+		final LogThreshold threshold;
+
+		Threshold(String category) {
+			this.category = category;
+			this.threshold = LogThreshold.of(category);
+		}
+	}
+
+	public LogRouter(String pathTemplate, RouteBy routeBy, Logger defaultLogger) {
+		this(pathTemplate, routeBy, defaultLogger, DEFAULT_MAX_LOGGERS);
+	}
+
+	/**
+	 * @param maxLoggers 最多同時保留的Logger數量，不含defaultLogger
+	 */
+	public LogRouter(String pathTemplate, RouteBy routeBy, Logger defaultLogger, int maxLoggers) {
+		this.pathTemplate = pathTemplate.contains(KEY) ? pathTemplate : insertKey(pathTemplate);
+		this.routeBy = routeBy;
+		this.defaultLogger = defaultLogger;
+		this.maxLoggers = Math.max(1, maxLoggers);
+	}
+
+	/**
+	 * 取得目前執行緒應該寫入的Logger。
+	 */
+	public Logger get() {
+		String key;
+		if (routeBy == RouteBy.CATEGORY) {
+			key = Config.getCategory();
+		} else if (routeBy == RouteBy.THREAD) {
+			key = Thread.currentThread().getName();
+		} else {
+			key = task.get();
+		}
+		return key == null || key.isEmpty() ? defaultLogger : get(key);
+	}
+
+	/**
+	 * 取得key對應的Logger，第一次使用時建立。
+	 */
+	public Logger get(String key) {
+		Route route = routes.get(key);
+		if (route == null) {
+			route = create(key);
+		} else {
+			long now = clock;
+			if (route.lastUsed != now) {
+				route.lastUsed = now;
+			}
+		}
+		return route.logger;
+	}
+
+	/**
+	 * 判斷目前category的level是否要寫出，不必先找出Logger。router建立的Logger都使用目前category的LogThreshold。
+	 */
+	public boolean isEnabled(LogLevel level) {
+		String category = Config.getCategory();
+		Threshold current = threshold;
+		if (current == null || current.category != category) {
+			current = new Threshold(category);
+			threshold = current;
+		}
+		return current.threshold.isEnabled(level);
+	}
+
+	private synchronized Route create(String key) {
+		Route route = routes.get(key);
+		if (route != null) {
+			return route;
+		}
+		route = retired.remove(key);
+		if (route == null) {
+			String category = routeBy == RouteBy.CATEGORY ? key : Args.getCategory();
+			route = new Route(new Logger(pathTemplate.replace(KEY, fileName(key)), category), clock);
+		} else {
+			route.lastUsed = clock;
+		}
+		routes.put(key, route);
+		clock++;
+		if (routes.size() > maxLoggers) {
+			evict(key);
+		}
+		closeRetired(System.currentTimeMillis() - CLOSE_DELAY_MILLIS);
+		return route;
+	}
+
+	// 移除最久沒有使用的Logger，剛建立的key除外，CLOSE_DELAY_MILLIS之後才關閉。
+	private void evict(String keep) {
+		String oldest = null;
+		long oldestUsed = Long.MAX_VALUE;
+		for (Map.Entry<String, Route> entry : routes.entrySet()) {
+			if (!entry.getKey().equals(keep) && entry.getValue().lastUsed < oldestUsed) {
+				oldest = entry.getKey();
+				oldestUsed = entry.getValue().lastUsed;
+			}
+		}
+		if (oldest != null) {
+			Route route = routes.remove(oldest);
+			route.retiredTime = System.currentTimeMillis();
+			retired.put(oldest, route);
+		}
+	}
+
+	// 關閉在before之前被移除的Logger
+	private void closeRetired(long before) {
+		Iterator<Route> iterator = retired.values().iterator();
+		while (iterator.hasNext()) {
+			Route route = iterator.next();
+			if (route.retiredTime <= before) {
+				iterator.remove();
+				route.logger.close();
+			}
+		}
+	}
+
+	public Logger getDefaultLogger() {
+		return defaultLogger;
+	}
+
+	public RouteBy getRouteBy() {
+		return routeBy;
+	}
+
+	public int size() {
+		return routes.size();
+	}
+
+	/**
+	 * 指定目前執行緒的task，之後的log寫到該task的Logger；task為null時改回預設。
+	 * 執行緒會被thread pool重複使用時，結束後要記得setTask(null)，或直接使用runTask()。
+	 */
+	public void setTask(String task) {
+		if (task == null) {
+			this.task.remove();
+		} else {
+			this.task.set(task);
+		}
+	}
+
+	/**
+	 * 在task的Logger下執行runnable，結束後恢復原本的設定。
+	 */
+	public void runTask(String task, Runnable runnable) {
+		String previous = this.task.get();
+		setTask(task);
+		try {
+			runnable.run();
+		} finally {
+			setTask(previous);
+		}
+	}
+
+	/**
+	 * 立即關閉key對應的Logger，之後再寫入時會重新建立。
+	 */
+	public synchronized void close(String key) {
+		Route route = routes.remove(key);
+		if (route == null) {
+			route = retired.remove(key);
+		}
+		if (route != null) {
+			route.logger.close();
+		}
+	}
+
+	/**
+	 * 關閉所有Logger，包含被移除後還沒關閉的Logger。
+	 */
+	public synchronized void close() {
+		for (String key : routes.keySet()) {
+			close(key);
+		}
+		closeRetired(Long.MAX_VALUE);
+	}
+
+	// pathTemplate沒有{key}時，加在檔名的第一個'-'或附檔名前面，例如log/javautil-{key}-yyyy-MM-dd.log。
+	private static String insertKey(String path) {
+		int start = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1;
+		int i = path.indexOf('-', start);
+		if (i == -1) {
+			i = path.lastIndexOf('.');
+			if (i < start) {
+				i = path.length();
+			}
+			return path.substring(0, i) + '-' + KEY + path.substring(i);
+		}
+		return path.substring(0, i + 1) + KEY + path.substring(i);
+	}
+
+	// 執行緒或task名稱可能有檔名不能用的字元
+	private static String fileName(String key) {
+		StringBuilder sb = new StringBuilder(key.length());
+		for (int i = 0; i < key.length(); i++) {
+			char ch = key.charAt(i);
+			sb.append(ch < ' ' || "\\/:*?\"<>|".indexOf(ch) != -1 ? '_' : ch);
+		}
+		return sb.toString();
+	}
+}
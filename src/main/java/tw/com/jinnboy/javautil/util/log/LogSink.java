@@ -0,0 +1,16 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.IOException;
+
+/**
+ * AsyncAppender背景執行緒的輸出目標。
+ * 
+ * write()只負責寫入，不需要flush，AsyncAppender每處理完一批LogEvent才會呼叫一次flush()。
+ * 
+ * @author 阿昌
+ */
+public interface LogSink {
+	void write(LogEvent event) throws IOException;
+
+	void flush() throws IOException;
+}
@@ -0,0 +1,155 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * 把JSON或binary格式的log檔轉成文字格式印出，類似tail指令。
+ *
+ * java tw.com.jinnboy.javautil.util.log.LogTail [-f] [-n 筆數] 檔案
+ *
+ * -f：印完後繼續等待新寫入的log。
+ * -n：只印最後幾筆，預設全部印出。
+ *
+ * 格式依檔案的第一個byte自動判斷，文字格式的檔案直接原樣印出。
+ * 資料不完整或遇到mmap預先配置的0時，下次會從同一個位置重新讀取。
+ *
+ * @author 阿昌
+ */
+public class LogTail {
+	private static final long FOLLOW_INTERVAL = 200L;
+
+	private final Path path;
+	private final PrintStream out;
+	private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+	private long position;
+	private LogLayout layout;
+	private final LogEvent event = new LogEvent();
+
+	public LogTail(Path path, PrintStream out) {
+		this.path = path;
+		this.out = out;
+	}
+
+	public static void main(String[] args) throws Exception {
+		boolean follow = false;
+		int lines = -1;
+		String file = null;
+		for (int i = 0; i < args.length; i++) {
+			if ("-f".equals(args[i])) {
+				follow = true;
+			} else if ("-n".equals(args[i]) && i + 1 < args.length) {
+				lines = Integer.parseInt(args[++i]);
+			} else {
+				file = args[i];
+			}
+		}
+		if (file == null) {
+			System.err.println("Usage: LogTail [-f] [-n lines] file");
+			System.exit(1);
+		}
+		LogTail tail = new LogTail(Paths.get(file), System.out);
+		tail.print(lines);
+		while (follow) {
+			Thread.sleep(FOLLOW_INTERVAL);
+			tail.print(-1);
+		}
+	}
+
+	/**
+	 * 印出上次讀到的位置之後的log。
+	 *
+	 * @param last 只印最後幾筆，小於0表示全部印出
+	 * @return 印出的筆數
+	 */
+	public int print(int last) throws IOException {
+		ArrayDeque<byte[]> tail = last >= 0 ? new ArrayDeque<byte[]>() : null;
+		int count = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < position) {
+				position = 0; // 檔案被截短或換成新檔案，從頭讀起
+			}
+			while (true) {
+				ByteBuffer buf = buffer;
+				buf.clear();
+				while (buf.hasRemaining() && channel.read(buf, position + buf.position()) > 0) {
+				}
+				buf.flip();
+				if (layout == null) {
+					if (buf.remaining() < 4 || buf.getInt(0) == 0) {
+						break; // 還沒有資料，或是mmap預先配置的0
+					}
+					layout = LogDecoder.detect(buf);
+				}
+				int records = 0;
+				ByteBuffer record;
+				while ((record = next(buf)) != null) {
+					records++;
+					if (tail == null) {
+						out.write(record.array(), record.position(), record.remaining());
+					} else if (last > 0) {
+						if (tail.size() == last) {
+							tail.removeFirst();
+						}
+						byte[] bytes = new byte[record.remaining()];
+						record.get(bytes);
+						tail.addLast(bytes);
+					}
+				}
+				position += buf.position();
+				count += records;
+				if (records == 0) {
+					if (buf.position() == 0 && buf.limit() == buf.capacity()) {
+						// 單筆log比buffer還大
+						buffer = ByteBuffer.allocate(buf.capacity() * 2);
+						continue;
+					}
+					break;
+				}
+			}
+		}
+		if (tail != null) {
+			for (byte[] bytes : tail) {
+				out.write(bytes, 0, bytes.length);
+			}
+		}
+		out.flush();
+		return count;
+	}
+
+	// 讀一筆並轉成文字格式，資料不完整時回傳null。
+	private ByteBuffer next(ByteBuffer buf) {
+		if (layout == LogLayout.TEXT) {
+			return nextLine(buf);
+		}
+		if (!LogDecoder.decode(layout, buf, event)) {
+			return null;
+		}
+		return LogFormatter.get().format(event.getTime(), event.getLevel(), event.getClassMethod(),
+				event.getMessage());
+	}
+
+	private static ByteBuffer nextLine(ByteBuffer buf) {
+		int start = buf.position();
+		for (int i = start, limit = buf.limit(); i < limit; i++) {
+			byte b = buf.get(i);
+			if (b == 0) {
+				return null;
+			}
+			if (b == '\n') {
+				buf.position(i + 1);
+				ByteBuffer line = buf.duplicate();
+				line.position(start);
+				line.limit(i + 1);
+				return line;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,73 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import tw.com.jinnboy.javautil.util.Config;
+
+/**
+ * 每個category共用一個LogThreshold，記錄最低要寫出的LogLevel。
+ *
+ * 初始值取自Config該category的LogLevel設定(沒有時用global的設定，預設INFO)，之後可以隨時用set()調整，
+ * 同一個category的Logger會立即套用，不需要重新啟動。cfg重新載入時由Log呼叫reloadAll()重新讀取。
+ *
+ * Logger以final欄位持有LogThreshold，判斷level是否要寫出只需要讀一次volatile欄位：
+ * level.ordinal() >= threshold.value
+ *
+ * @author 阿昌
+ */
+public final class LogThreshold {
+	private static final ConcurrentHashMap<String, LogThreshold> THRESHOLDS = new ConcurrentHashMap<>();
+
+	private final String category;
+	private volatile int value;
+
+	private LogThreshold(String category) {
+		this.category = category;
+		reload();
+	}
+
+	/**
+	 * 所有category重新讀取Config的LogLevel，cfg重新載入時使用。
+	 */
+	public static void reloadAll() {
+		for (LogThreshold threshold : THRESHOLDS.values()) {
+			threshold.reload();
+		}
+	}
+
+	private void reload() {
+		value = LogLevel.of(Config.getValue(category, "LogLevel", null), LogLevel.INFO).ordinal();
+	}
+
+	/**
+	 * 取得category的LogThreshold，category為null或空白表示global。
+	 */
+	public static LogThreshold of(String category) {
+		String key = category == null ? "" : category.toLowerCase();
+		LogThreshold threshold = THRESHOLDS.get(key);
+		if (threshold == null) {
+			threshold = new LogThreshold(category);
+			LogThreshold previous = THRESHOLDS.putIfAbsent(key, threshold);
+			if (previous != null) {
+				threshold = previous;
+			}
+		}
+		return threshold;
+	}
+
+	public String getCategory() {
+		return category;
+	}
+
+	public boolean isEnabled(LogLevel level) {
+		return level.ordinal() >= value;
+	}
+
+	public LogLevel get() {
+		return LogLevel.values()[value];
+	}
+
+	public void set(LogLevel level) {
+		value = level.ordinal();
+	}
+}
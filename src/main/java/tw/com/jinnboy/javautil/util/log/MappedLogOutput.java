@@ -0,0 +1,163 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 用MappedByteBuffer寫log檔。
+ *
+ * 開檔時在檔尾預先配置一段固定大小的segment並map到記憶體，之後寫log只是記憶體複製，不需要write system call，
+ * 由作業系統自行把資料寫回檔案。segment寫滿時write()回傳false，由Logger換到下一個檔案。
+ * close()時會把檔案截到實際寫入的長度。
+ *
+ * 每次寫入後在資料後面放一個trailer(8 bytes的資料長度和4 bytes的MAGIC)，close()截短時一起去掉。
+ * 若程式異常結束沒有執行close()，檔尾會是trailer和未使用的0，下次開同一個檔案時依trailer記錄的長度接著寫；
+ * 不能只找最後一個非0的byte，BINARY格式的log可能以0結尾(例如空白訊息的長度)。
+ *
+ * @author 阿昌
+ */
+public class MappedLogOutput implements LogOutput {
+	private static final Method INVOKE_CLEANER;
+	private static final Object UNSAFE;
+
+	static {
+		Method invokeCleaner = null;
+		Object unsafe = null;
+		try {
+			// Java 9以後可以用sun.misc.Unsafe.invokeCleaner()立即unmap，否則Windows上無法截短還在map中的檔案
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (Exception e) {
+			invokeCleaner = null;
+		}
+		INVOKE_CLEANER = invokeCleaner;
+		UNSAFE = unsafe;
+	}
+
+	static final int TRAILER_LENGTH = 12;
+	private static final int MAGIC = 0x4D4C4F47; // "MLOG"，最後一個byte不是0
+
+	private final Path path;
+	private final FileChannel channel;
+	private final long start; // 目前segment在檔案裡的起始位置
+	private MappedByteBuffer mapped;
+
+	public MappedLogOutput(Path path, int segmentSize) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			this.start = dataLength(channel);
+			// 一次最多只能map Integer.MAX_VALUE bytes
+			int size = Math.min(Math.max(segmentSize, 0), Integer.MAX_VALUE - TRAILER_LENGTH) + TRAILER_LENGTH;
+			this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+			writeTrailer();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean write(ByteBuffer buf) throws IOException {
+		if (buf.remaining() > mapped.remaining() - TRAILER_LENGTH) {
+			if (mapped.position() > 0) {
+				return false;
+			}
+			// 單行log比整個segment還大，這個segment就只放這一行
+			unmap(mapped);
+			mapped = channel.map(FileChannel.MapMode.READ_WRITE, start, buf.remaining() + TRAILER_LENGTH);
+		}
+		mapped.put(buf);
+		writeTrailer();
+		return true;
+	}
+
+	// 在資料後面記錄目前的長度，不移動position
+	private void writeTrailer() {
+		int position = mapped.position();
+		mapped.putLong(position, start + position);
+		mapped.putInt(position + 8, MAGIC);
+	}
+
+	@Override
+	public void flush() {
+		// 寫入MappedByteBuffer就已經在作業系統的page cache裡，不需要每批force()到磁碟
+	}
+
+	@Override
+	public long size() {
+		return start + mapped.position();
+	}
+
+	@Override
+	public Path getPath() {
+		return path;
+	}
+
+	@Override
+	public void close() throws IOException {
+		long length = size();
+		unmap(mapped);
+		try {
+			channel.truncate(length);
+		} finally {
+			channel.close();
+		}
+	}
+
+	// 異常結束的檔案以trailer加上未使用的0結尾，依trailer記錄的長度接著寫；正常關閉的檔案沒有trailer，直接使用檔案大小。
+	private static long dataLength(FileChannel channel) throws IOException {
+		long end = lastNonZero(channel);
+		if (end >= TRAILER_LENGTH) {
+			ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+			while (trailer.hasRemaining()
+					&& channel.read(trailer, end - TRAILER_LENGTH + trailer.position()) > 0) {
+			}
+			if (!trailer.hasRemaining() && trailer.getInt(8) == MAGIC
+					&& trailer.getLong(0) == end - TRAILER_LENGTH) {
+				return end - TRAILER_LENGTH;
+			}
+		}
+		return channel.size();
+	}
+
+	// 最後一個非0的byte之後的位置，檔案全是0時回傳0。
+	private static long lastNonZero(FileChannel channel) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(8192);
+		long end = channel.size();
+		while (end > 0) {
+			long from = Math.max(0, end - buf.capacity());
+			buf.clear();
+			buf.limit((int) (end - from));
+			while (buf.hasRemaining() && channel.read(buf, from + buf.position()) > 0) {
+			}
+			for (int i = buf.position() - 1; i >= 0; i--) {
+				if (buf.get(i) != 0) {
+					return from + i + 1;
+				}
+			}
+			end = from;
+		}
+		return 0;
+	}
+
+	private static void unmap(MappedByteBuffer buffer) {
+		if (INVOKE_CLEANER != null) {
+			try {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			} catch (Exception e) {
+				// 無法立即unmap時交給GC處理
+			}
+		}
+	}
+}
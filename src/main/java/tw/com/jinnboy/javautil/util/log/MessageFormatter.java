@@ -0,0 +1,76 @@
+package tw.com.jinnboy.javautil.util.log;
+
+/**
+ * 處理Log.info("a={}, b={}", a, b)這種{}佔位符的訊息。
+ *
+ * 只有在該level確定要寫出時才會被呼叫，依序把{}換成參數的String.valueOf()，
+ * 多出來的{}保持原樣，多出來的參數忽略，比String.format便宜很多。
+ *
+ * 為了相容既有的Log.info("%s", a)寫法，pattern裡沒有{}時會改用String.format。
+ *
+ * @author 阿昌
+ */
+public final class MessageFormatter {
+	private static final int MAX_RETAINED_CAPACITY = 4 * 1024;
+
+	private static final ThreadLocal<StringBuilder> LOCAL = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(256);
+		}
+	};
+
+	private MessageFormatter() {
+	}
+
+	public static String format(String pattern, Object arg1) {
+		return format(pattern, null, 1, arg1, null, null);
+	}
+
+	public static String format(String pattern, Object arg1, Object arg2) {
+		return format(pattern, null, 2, arg1, arg2, null);
+	}
+
+	public static String format(String pattern, Object arg1, Object arg2, Object arg3) {
+		return format(pattern, null, 3, arg1, arg2, arg3);
+	}
+
+	/**
+	 * 參數超過3個或本來就是陣列時使用，沒有參數時直接回傳pattern。
+	 */
+	public static String format(String pattern, Object... args) {
+		if (args == null || args.length == 0) {
+			return pattern;
+		}
+		return format(pattern, args, args.length, null, null, null);
+	}
+
+	// args為null時參數是arg1~arg3，1到3個參數的呼叫不必建立陣列
+	private static String format(String pattern, Object[] args, int argCount, Object arg1, Object arg2,
+			Object arg3) {
+		if (pattern == null) {
+			return "null";
+		}
+		int i = pattern.indexOf("{}");
+		if (i == -1) {
+			return String.format(pattern, args != null ? args
+					: argCount == 1 ? new Object[] { arg1 }
+							: argCount == 2 ? new Object[] { arg1, arg2 } : new Object[] { arg1, arg2, arg3 });
+		}
+		StringBuilder sb = LOCAL.get();
+		if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+			sb = new StringBuilder(256);
+			LOCAL.set(sb);
+		}
+		sb.setLength(0);
+		int start = 0;
+		for (int n = 0; n < argCount && i != -1; n++) {
+			sb.append(pattern, start, i);
+			sb.append(args != null ? args[n] : n == 0 ? arg1 : n == 1 ? arg2 : arg3);
+			start = i + 2;
+			i = pattern.indexOf("{}", start);
+		}
+		sb.append(pattern, start, pattern.length());
+		return sb.toString();
+	}
+}
@@ -0,0 +1,153 @@
+package tw.com.jinnboy.javautil.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tw.com.jinnboy.javautil.util.autobind.AutoBind;
+import tw.com.jinnboy.javautil.util.autobind.BulkBinder;
+import tw.com.jinnboy.javautil.util.autobind.ParamGetter;
+import tw.com.jinnboy.javautil.util.autobind.Reflect;
+
+/**
+ * 比較綁定一個物件(String、int setter、long、double四個變數)的成本。
+ *
+ * reflection：原本Reflect.autoBind()的寫法，每次找變數和setter，用Reflect.methodSet()、fieldSet()設定。
+ * autoBind：Reflect.autoBind()，Person編譯時產生了Person$$AutoBinder，直接呼叫setter和設定變數。
+ *           沒有AutoBinder的類別使用暫存的BindingPlan和LambdaMetafactory、MethodHandle產生的Setter。
+ * handWritten：直接呼叫setter和設定變數，作為下限。
+ * mapsOneByOne、bulkRows：綁定1000筆資料，逐筆Reflect.autoBind(map, obj)和BulkBinder.bindAll()用欄位位置平行綁定。
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="AutoBindBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AutoBindBenchmark {
+
+	public static class Person {
+		@AutoBind
+		String name;
+		@AutoBind(alias = "years")
+		private int age;
+		@AutoBind
+		long id;
+		@AutoBind
+		double score;
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+	}
+
+	private final ParamGetter paramGetter = new ParamGetter() {
+		@Override
+		public String getParam(String... paramNames) {
+			switch (paramNames[0]) {
+			case "name":
+				return "Jason";
+			case "age":
+				return "18";
+			case "id":
+				return "1234567890";
+			default:
+				return "98.5";
+			}
+		}
+	};
+
+	private final List<Map<String, String>> maps = new ArrayList<>();
+	private final List<String[]> rows = new ArrayList<>();
+	private final BulkBinder<Person> bulkBinder = BulkBinder.of(Person.class, "name", "age", "id", "score");
+
+	@Setup
+	public void setUp() {
+		for (int i = 0; i < 1000; i++) {
+			Map<String, String> map = new HashMap<>();
+			map.put("name", "P" + i);
+			map.put("age", String.valueOf(i % 100));
+			map.put("id", String.valueOf(i));
+			map.put("score", "98.5");
+			maps.add(map);
+			rows.add(new String[] { "P" + i, String.valueOf(i % 100), String.valueOf(i), "98.5" });
+		}
+	}
+
+	@Benchmark
+	public Person reflection() {
+		Person person = new Person();
+		Class<?> clazz = person.getClass();
+		List<Field> fields = Reflect.findFields(clazz);
+		List<Method> methods = Reflect.findSetterMethods(clazz);
+		for (Field field : fields) {
+			AutoBind autoBind = field.getAnnotation(AutoBind.class);
+			if (autoBind != null) {
+				String fieldName = field.getName();
+				String[] alias = autoBind.alias();
+				String[] paramNames = new String[alias.length + 1];
+				paramNames[0] = fieldName;
+				System.arraycopy(alias, 0, paramNames, 1, alias.length);
+				String value = paramGetter.getParam(paramNames);
+				Method setter = Reflect.findMethodByName(methods, "set" + fieldName,
+						"set" + Reflect.capitalize(fieldName));
+				if (setter != null) {
+					Reflect.methodSet(setter, person, value);
+				} else {
+					Reflect.fieldSet(field, person, value);
+				}
+			}
+		}
+		return person;
+	}
+
+	@Benchmark
+	public Person autoBind() {
+		Person person = new Person();
+		Reflect.autoBind(paramGetter, person);
+		return person;
+	}
+
+	@Benchmark
+	public Person handWritten() {
+		Person person = new Person();
+		person.name = paramGetter.getParam("name");
+		person.setAge(Integer.parseInt(paramGetter.getParam("age", "years")));
+		person.id = Long.parseLong(paramGetter.getParam("id"));
+		person.score = Double.parseDouble(paramGetter.getParam("score"));
+		return person;
+	}
+
+	@Benchmark
+	public List<Person> mapsOneByOne() {
+		List<Person> persons = new ArrayList<>(maps.size());
+		for (Map<String, String> map : maps) {
+			Person person = new Person();
+			Reflect.autoBind(map, person);
+			persons.add(person);
+		}
+		return persons;
+	}
+
+	@Benchmark
+	public List<Person> bulkRows() {
+		return bulkBinder.bindAll(rows.stream());
+	}
+}
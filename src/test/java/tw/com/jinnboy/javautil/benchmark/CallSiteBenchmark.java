@@ -0,0 +1,44 @@
+package tw.com.jinnboy.javautil.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tw.com.jinnboy.javautil.util.log.CallSite;
+
+/**
+ * 比較Log找呼叫函式名稱的成本。
+ *
+ * stackTrace：原本的Thread.currentThread().getStackTrace()寫法。
+ * callSite：CallSite.resolve()，StackWalker只走需要的frame，並暫存「Class-method」字串。
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="CallSiteBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallSiteBenchmark {
+
+	@Benchmark
+	public String stackTrace() {
+		StackTraceElement[] elements = Thread.currentThread().getStackTrace();
+		// elements[0]=Thread.getStackTrace()
+		// elements[1]=the calling method
+		String name = elements[1].getClassName();
+		int i = name.lastIndexOf('.');
+		return (i != -1 ? name.substring(i + 1) : name) + '-' + elements[1].getMethodName();
+	}
+
+	@Benchmark
+	public String callSite() {
+		return CallSite.resolve();
+	}
+}
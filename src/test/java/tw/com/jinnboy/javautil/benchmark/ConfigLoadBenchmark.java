@@ -0,0 +1,112 @@
+package tw.com.jinnboy.javautil.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tw.com.jinnboy.javautil.util.Config;
+import tw.com.jinnboy.javautil.util.config.ConfigCache;
+import tw.com.jinnboy.javautil.util.config.ConfigParser;
+import tw.com.jinnboy.javautil.util.config.ConfigSnapshot;
+
+/**
+ * 載入大型cfg檔的時間，模擬每個entity一個section、共幾十萬行的產生檔。
+ *
+ * readLine：原本BufferedReader.readLine()、trim()、substring()的解析方式。
+ * parser：ConfigParser，mmap讀入後依section平行解析，值延後解碼。
+ * cached：ConfigCache，cfg檔沒變時檢查CRC32後直接mmap binary快取，不重新解析。
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ConfigLoadBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigLoadBenchmark {
+	@Param({ "10000", "100000" })
+	public int entities;
+
+	private Path cfg;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		cfg = Files.createTempFile("config-benchmark", ".cfg");
+		try (Writer writer = Files.newBufferedWriter(cfg, StandardCharsets.UTF_8)) {
+			writer.write("# generated\nGlobalParam=XXX\nTimeout=30\n");
+			for (int i = 0; i < entities; i++) {
+				writer.write("\n[Entity" + i + "]\n");
+				writer.write("name=entity-" + i + "\n");
+				writer.write("owner=部門" + (i % 100) + "\n");
+				writer.write("path=/data/entity/" + i + "/yyyyMMdd.csv\n");
+				writer.write("limit=" + (i * 13 % 1000) + "\n");
+				writer.write("enabled=" + (i % 2) + "\n");
+			}
+		}
+		ConfigCache.load(cfg); // 先寫出快取
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(ConfigCache.cachePath(cfg));
+		Files.deleteIfExists(cfg);
+	}
+
+	@Benchmark
+	public ConfigSnapshot readLine() throws IOException {
+		ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder(cfg);
+		try (BufferedReader br = Files.newBufferedReader(cfg, StandardCharsets.UTF_8)) {
+			String section = "";
+			String line;
+			String param;
+			int i;
+			while ((line = br.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.charAt(0) == '#') {
+					continue;
+				}
+				if (line.charAt(0) == '[' && line.charAt(line.length() - 1) == ']') {
+					section = line.substring(1, line.length() - 1);
+					builder.section(section);
+					continue;
+				}
+				i = line.indexOf('=');
+				if (i > 0 && Config.isValidParam(param = line.substring(0, i).trim())) {
+					builder.put(section, param, line.substring(i + 1).trim());
+					continue;
+				}
+				builder.addOtherLine(section, line);
+			}
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public ConfigSnapshot parser() throws IOException {
+		return ConfigParser.parse(cfg);
+	}
+
+	@Benchmark
+	public ConfigSnapshot cached() throws IOException {
+		return ConfigCache.load(cfg);
+	}
+}
@@ -0,0 +1,137 @@
+package tw.com.jinnboy.javautil.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import tw.com.jinnboy.javautil.util.Log;
+
+/**
+ * Log.info()、warning()、error()的吞吐量及延遲分佈。
+ *
+ * plain：直接傳入組好的字串。
+ * formatted：{}佔位符，只有確定要寫出時才組字串。
+ * printf：原本的String.format寫法。
+ * classMethod：InfoWriteClassMethod開或關，只影響info()。
+ *
+ * Mode.SampleTime會列出p99、p99.99等延遲分佈，GCProfiler的gc.alloc.rate.norm是每次呼叫配置的bytes。
+ * error()預設會另外印到System.err，測試時把System.err導到空的OutputStream，只量寫檔的成本。
+ * log寫在暫存目錄，每個iteration結束時刪除。
+ *
+ * 依序用1、4、16、64個執行緒各跑一次：
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.main=tw.com.jinnboy.javautil.benchmark.LogBenchmark -Djmh.args=LogBenchmark
+ *
+ * 只跑某個執行緒數：
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="LogBenchmark -t 16 -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogBenchmark {
+	private static final int[] THREADS = { 1, 4, 16, 64 };
+
+	@Param({ "true", "false" })
+	public boolean classMethod;
+
+	private Path folder;
+	private String logPath;
+	private PrintStream err;
+	private String user = "jinnboy";
+	private int count = 42;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		// 必須在Log載入前換掉，Logger建立時就會抓住System.err
+		err = System.err;
+		System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+		folder = Files.createTempDirectory("log-benchmark");
+		logPath = folder.resolve("bench-yyyy-MM-dd.log").toString();
+		Log.setLogPath(logPath);
+		Log.setInfoWriteClassMethod(classMethod);
+	}
+
+	@TearDown(Level.Iteration)
+	public void clean() throws IOException {
+		Log.setLogPath(logPath); // 關閉目前的檔案
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+			for (Path path : stream) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		clean();
+		Files.deleteIfExists(folder);
+		System.setErr(err);
+	}
+
+	@Benchmark
+	public void infoPlain() {
+		Log.info("user login, count=42");
+	}
+
+	@Benchmark
+	public void infoFormatted() {
+		Log.info("user={}, count={}", user, count);
+	}
+
+	@Benchmark
+	public void infoPrintf() {
+		Log.info("user=%s, count=%d", user, count);
+	}
+
+	@Benchmark
+	public void warningPlain() {
+		Log.warning("user login, count=42");
+	}
+
+	@Benchmark
+	public void warningFormatted() {
+		Log.warning("user={}, count={}", user, count);
+	}
+
+	@Benchmark
+	public void errorPlain() {
+		Log.error("user login, count=42");
+	}
+
+	@Benchmark
+	public void errorFormatted() {
+		Log.error("user={}, count={}", user, count);
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		for (int threads : THREADS) {
+			new Runner(new OptionsBuilder().parent(commandLine).threads(threads).addProfiler(GCProfiler.class).build())
+					.run();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package tw.com.jinnboy.javautil.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tw.com.jinnboy.javautil.util.config.ConfigCache;
+
+public class ArgsTest {
+	private Path cfg;
+
+	@Before
+	public void setUp() throws IOException {
+		cfg = Files.createTempFile("args-test", ".cfg");
+		Files.write(cfg, Arrays.asList("layer=global", "output=global.csv", "[CategoryA]", "layer=category",
+				"[CategoryA.PROD]", "layer=prod"), StandardCharsets.UTF_8);
+		assertTrue(Config.load(cfg));
+		Config.setCategory("CategoryA");
+		Config.setEnvironment("PROD");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Args.clearRuntimeArgs();
+		Config.setCategory(null);
+		Config.setEnvironment(null);
+		Files.deleteIfExists(cfg);
+		Files.deleteIfExists(ConfigCache.cachePath(cfg));
+	}
+
+	@Test
+	public void resolvesLayersInOrder() {
+		assertEquals("prod", Args.get("layer"));
+		Config.setEnvironment("DEV");
+		assertEquals("category", Args.get("layer"));
+		Config.setCategory(null);
+		assertEquals("global", Args.get("layer"));
+
+		Args.addArg("layer", "command");
+		assertEquals("command", Args.get("layer"));
+		Args.setRuntimeArg("layer", "runtime");
+		assertEquals("runtime", Args.get("layer"));
+		Args.removeRuntimeArg("layer");
+		assertEquals("command", Args.get("layer"));
+	}
+
+	@Test
+	public void environmentVariableBeforeConfig() {
+		assertEquals("env", Args.get("envLayer")); // pom.xml設定的JAVAUTIL_envLayer
+		assertEquals("upper", Args.get("envUpper")); // 也找全部大寫的JAVAUTIL_ENVUPPER
+		if (System.getenv("PATH") != null) {
+			assertEquals("", Args.get("PATH")); // 沒有前綴的環境變數不會被讀到
+		}
+	}
+
+	@Test
+	public void changeClearsMemoOfAllNames() {
+		assertEquals("global.csv", Args.getByNames("o", "output"));
+		Args.setRuntimeArg("o", "runtime.csv");
+		assertEquals("runtime.csv", Args.getByNames("o", "output"));
+		Args.clearRuntimeArgs();
+		assertEquals("global.csv", Args.getByNames("o", "output"));
+	}
+
+	@Test
+	public void repeatedArgsKeepAllValues() {
+		Args.load(new String[] { "-multi", "a", "-multi", "-multi", "c", "-flag" });
+		assertEquals(Arrays.asList("a", "1", "c"), Arrays.asList(Args.getArgs("multi")));
+		assertEquals("a", Args.get("multi"));
+		assertEquals("1", Args.get("flag"));
+		assertEquals(3, Args.getValues("multi").size());
+	}
+
+	@Test
+	public void getWithDefault() {
+		assertEquals("fallback", Args.get("undefinedArg", "fallback"));
+		assertEquals("global.csv", Args.get("output", "fallback"));
+	}
+
+	@Test
+	public void typedGettersFollowChanges() {
+		Args.setRuntimeArg("retry", "3");
+		assertEquals(3, Args.getInt("retry", 1));
+		assertEquals(3L, Args.getLong("retry", 1));
+		Args.setRuntimeArg("retry", "x");
+		assertEquals(1, Args.getInt("retry", 1));
+		Args.setRuntimeArg("retry", "yes");
+		assertTrue(Args.getBoolean("retry", false));
+		Args.setRuntimeArg("retry", "5m");
+		assertEquals(Duration.ofMinutes(5), Args.getDuration("retry", Duration.ZERO));
+		Args.removeRuntimeArg("retry");
+		assertEquals(7, Args.getInt("retry", 7));
+	}
+
+	@Test
+	public void taskArgsAreScopedAndWrapped() throws Exception {
+		Args.setRuntimeArg("output", "global-runtime.csv");
+		final Map<String, String> seen = new ConcurrentHashMap<>();
+		final ExecutorService pool = Executors.newFixedThreadPool(2);
+		final ExecutorService lazyPool = Executors.newFixedThreadPool(2); // 執行緒在Task裡才建立
+		try {
+			Thread[] tasks = new Thread[2];
+			for (int i = 0; i < tasks.length; i++) {
+				final String task = "task" + i;
+				tasks[i] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						Args.runTask(Collections.singletonMap("output", task + ".csv"), new Runnable() {
+							@Override
+							public void run() {
+								seen.put(task, Args.get("output"));
+								Thread child = new Thread(Args.wrap(new Runnable() {
+									@Override
+									public void run() {
+										seen.put(task + "-child", Args.getByNames("o", "output"));
+									}
+								}));
+								child.start();
+								try {
+									child.join();
+									lazyPool.submit(new Runnable() {
+										@Override
+										public void run() {
+											seen.put(task + "-unwrapped", Args.get("output"));
+										}
+									}).get();
+									pool.submit(Args.wrap(new Runnable() {
+										@Override
+										public void run() {
+											seen.put(task + "-pool", Args.get("output"));
+										}
+									})).get();
+								} catch (Exception e) {
+									throw new IllegalStateException(e);
+								}
+							}
+						});
+						seen.put(task + "-after", Args.get("output"));
+					}
+				});
+				tasks[i].start();
+			}
+			for (Thread thread : tasks) {
+				thread.join();
+			}
+		} finally {
+			pool.shutdown();
+			lazyPool.shutdown();
+		}
+		for (int i = 0; i < 2; i++) {
+			String task = "task" + i;
+			assertEquals(task + ".csv", seen.get(task));
+			assertEquals(task + ".csv", seen.get(task + "-child"));
+			assertEquals(task + ".csv", seen.get(task + "-pool"));
+			assertEquals("global-runtime.csv", seen.get(task + "-unwrapped")); // 沒有繼承Task的runtimeArg
+			assertEquals("global-runtime.csv", seen.get(task + "-after"));
+		}
+		assertEquals("global-runtime.csv", Args.get("output"));
+		assertEquals(7, Args.callTask(Collections.singletonMap("retry", "7"), new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return Args.getInt("retry", 1);
+			}
+		}).intValue());
+	}
+}
@@ -0,0 +1,187 @@
+package tw.com.jinnboy.javautil.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tw.com.jinnboy.javautil.util.config.ConfigCache;
+import tw.com.jinnboy.javautil.util.config.ConfigHandle;
+import tw.com.jinnboy.javautil.util.config.ConfigListener;
+import tw.com.jinnboy.javautil.util.config.ConfigSnapshot;
+
+public class ConfigTest {
+	private Path cfg;
+
+	@Before
+	public void setUp() throws IOException {
+		cfg = Files.createTempFile("config-test", ".cfg");
+		write("GlobalParam1=XXX", "param1=global", "Timeout=30", "", "# comment", "[CategoryA]", "param1=aaa",
+				"param2=apple", "This is an apple", "Timeout=5m", "Enabled=Y", "[CategoryB]", "param1=bbb",
+				"Timeout=abc");
+		assertTrue(Config.load(cfg));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Config.unwatch();
+		Config.setCategory(null);
+		Files.deleteIfExists(cfg);
+		Files.deleteIfExists(ConfigCache.cachePath(cfg));
+	}
+
+	private void write(String... lines) throws IOException {
+		Files.write(cfg, Arrays.asList(lines), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void categoryOverridesGlobal() {
+		Config.setCategory("CategoryA");
+		assertEquals("aaa", Config.get("param1"));
+		assertEquals("XXX", Config.get("GlobalParam1"));
+		Config.setCategory("CategoryB");
+		assertEquals("bbb", Config.get("param1"));
+		assertEquals("", Config.get("param2"));
+		assertEquals("default", Config.get("param2", "default"));
+		Config.setCategory(null);
+		assertEquals("global", Config.get("param1"));
+	}
+
+	@Test
+	public void otherLinesAndCategories() {
+		assertEquals(Arrays.asList("This is an apple"), Config.getOtherLines("categorya"));
+		assertTrue(Config.getOtherLines(null).isEmpty());
+		assertTrue(Config.containCategory("CATEGORYB"));
+		assertFalse(Config.containCategory("CategoryC"));
+	}
+
+	@Test
+	public void categoryViewsIgnoreCase() {
+		ConfigSnapshot snapshot = Config.getSnapshot();
+		assertSame(snapshot.view("CategoryA"), snapshot.view("categorya"));
+		assertSame(snapshot.view("CategoryA", "PROD"), snapshot.view("CATEGORYA", "prod"));
+		assertEquals("aaa", snapshot.view("CATEGORYA").get("param1", null));
+	}
+
+	@Test
+	public void failedReloadKeepsPreviousSnapshot() throws IOException {
+		Files.delete(cfg);
+		Files.createDirectory(cfg); // 讀取目錄會失敗
+		try {
+			assertFalse(Config.load(cfg));
+			assertEquals("XXX", Config.get("GlobalParam1"));
+		} finally {
+			Files.delete(cfg);
+		}
+	}
+
+	@Test
+	public void getValueWithExplicitCategory() {
+		assertEquals("aaa", Config.getValue("CategoryA", "param1", null));
+		assertEquals("aaa", Config.getValue("categorya", "param1", null));
+		assertEquals("global", Config.getValue(null, "param1", null));
+		assertEquals(null, Config.getValue("CategoryC", "param2", null));
+	}
+
+	@Test
+	public void handlesFollowCategoryAndReload() throws IOException {
+		ConfigHandle<Long> timeout = ConfigHandle.ofLong("Timeout", 1);
+		ConfigHandle<Duration> duration = ConfigHandle.ofDuration("Timeout", Duration.ZERO);
+		ConfigHandle<Boolean> enabled = ConfigHandle.ofBoolean("Enabled", false);
+		assertEquals(Long.valueOf(30), timeout.get());
+		assertEquals(Duration.ofMillis(30), duration.get());
+		assertEquals(Boolean.FALSE, enabled.get());
+		Config.setCategory("CategoryA");
+		assertEquals(Long.valueOf(1), timeout.get()); // 5m不是數字
+		assertEquals(Duration.ofMinutes(5), duration.get());
+		assertEquals(Boolean.TRUE, enabled.get());
+		Config.setCategory("CategoryB");
+		assertEquals(Long.valueOf(1), timeout.get());
+		write("Timeout=45");
+		assertTrue(Config.load(cfg));
+		assertEquals(Long.valueOf(45), timeout.get());
+	}
+
+	@Test
+	public void listenersReceiveChangedKeys() throws IOException {
+		final AtomicReference<Set<String>> changed = new AtomicReference<>();
+		ConfigListener listener = new ConfigListener() {
+			@Override
+			public void changed(Set<String> keys) {
+				changed.set(keys);
+			}
+		};
+		Config.addListener(listener);
+		try {
+			write("GlobalParam1=XXX", "param1=changed", "Timeout=30", "NewParam=1", "[CategoryA]", "param1=aaa",
+					"param2=apple", "This is an apple", "Timeout=5m", "Enabled=Y", "[CategoryB]", "param1=bbb");
+			assertTrue(Config.load(cfg));
+			assertEquals(new HashSet<>(Arrays.asList("param1", "NewParam", "categoryb@Timeout")), changed.get());
+		} finally {
+			Config.removeListener(listener);
+		}
+	}
+
+	@Test
+	public void watchReloadsModifiedFile() throws Exception {
+		assertTrue(Config.watch(50));
+		Thread.sleep(100);
+		write("GlobalParam1=YYY");
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!"YYY".equals(Config.get("GlobalParam1")) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals("YYY", Config.get("GlobalParam1"));
+	}
+
+	@Test
+	public void watchIgnoresOtherFilesInTheDirectory() throws Exception {
+		Path other = Files.createTempFile(cfg.getParent(), "config-test-other", ".log");
+		try {
+			assertTrue(Config.watch(300));
+			Thread.sleep(100);
+			write("GlobalParam1=ZZZ");
+			long start = System.currentTimeMillis();
+			// 同一個目錄的其他檔案持續寫入，間隔比debounce短，不應該一直延後重新載入
+			while (!"ZZZ".equals(Config.get("GlobalParam1")) && System.currentTimeMillis() - start < 3000) {
+				Files.write(other, Arrays.asList(String.valueOf(System.nanoTime())), StandardCharsets.UTF_8);
+				Thread.sleep(50);
+			}
+			assertEquals("ZZZ", Config.get("GlobalParam1"));
+		} finally {
+			Files.delete(other);
+		}
+	}
+
+	@Test
+	public void referencesResolveInCurrentCategory() throws IOException {
+		write("folder=/data", "output=${folder}/out_yyyyMMdd.csv", "loop=${loop}x", "bad=${not-param} ${missing}",
+				"[CategoryA]", "folder=/data/a");
+		for (int i = 0; i < 2; i++) { // 第二次從ConfigCache載入
+			assertTrue(Config.load(cfg));
+			assertEquals("/data/out_yyyyMMdd.csv", Config.get("output"));
+			assertEquals("${loop}x", Config.get("loop"));
+			assertEquals("${not-param} ${missing}", Config.get("bad"));
+			Config.setCategory("CategoryA");
+			assertEquals("/data/a/out_yyyyMMdd.csv", Config.get("output"));
+			assertEquals("/data/a/out_" + Dates.format("yyyyMMdd", new Date()) + ".csv", Config.expand("output"));
+			assertEquals("", Config.expand("missing"));
+			Config.setCategory(null);
+		}
+	}
+}
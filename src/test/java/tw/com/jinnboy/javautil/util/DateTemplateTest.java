@@ -0,0 +1,96 @@
+package tw.com.jinnboy.javautil.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class DateTemplateTest {
+
+	// 原本用regex直接取代的replaceSymbol()，用來比對DateTemplate的結果
+	private static String legacyReplaceSymbol(String str, Date date) {
+		StringBuilder sb = new StringBuilder(str);
+		String yyyymmdd = Dates.format("yyyyMMdd", date);
+		String time = Dates.format("HHmmssSSS", date);
+		Matcher matcher = Pattern.compile("(yy)?(yy)[^a-zA-Z0-9]?(mm)[^a-zA-Z0-9]?(dd)?", Pattern.CASE_INSENSITIVE)
+				.matcher(str);
+		int index;
+		while (matcher.find()) {
+			for (int groupIndex = 1; groupIndex <= 4; groupIndex++) {
+				if (matcher.group(groupIndex) != null) {
+					index = matcher.start(groupIndex);
+					sb.setCharAt(index, yyyymmdd.charAt(groupIndex * 2 - 2));
+					sb.setCharAt(index + 1, yyyymmdd.charAt(groupIndex * 2 - 1));
+				}
+			}
+		}
+		matcher = Pattern.compile("(mm)[^a-zA-Z0-9]?(dd)", Pattern.CASE_INSENSITIVE).matcher(sb.toString());
+		while (matcher.find()) {
+			index = matcher.start(1);
+			sb.setCharAt(index, yyyymmdd.charAt(4));
+			sb.setCharAt(index + 1, yyyymmdd.charAt(5));
+			index = matcher.start(2);
+			sb.setCharAt(index, yyyymmdd.charAt(6));
+			sb.setCharAt(index + 1, yyyymmdd.charAt(7));
+		}
+		matcher = Pattern.compile("(hh):?(mm):?(ss)?(?:\\.?(SSS))?", Pattern.CASE_INSENSITIVE).matcher(sb.toString());
+		while (matcher.find()) {
+			for (int groupIndex = 1; groupIndex <= 4; groupIndex++) {
+				if (matcher.group(groupIndex) != null) {
+					index = matcher.start(groupIndex);
+					sb.setCharAt(index, time.charAt(groupIndex * 2 - 2));
+					sb.setCharAt(index + 1, time.charAt(groupIndex * 2 - 1));
+					if (groupIndex == 4) {
+						sb.setCharAt(index + 2, time.charAt(8));
+					}
+				}
+			}
+		}
+		str = sb.toString();
+		str = str.replace("$today", yyyymmdd);
+		str = str.replace("$yesterday", Dates.format("yyyyMMdd", Dates.addDay(date, -1)));
+		str = str.replace("$tomorrow", Dates.format("yyyyMMdd", Dates.addDay(date, 1)));
+		str = str.replace("$lastmonth", Dates.format("yyyyMM", Dates.addMonth(date, -1)));
+		str = str.replace("$nextmonth", Dates.format("yyyyMM", Dates.addMonth(date, 1)));
+		return str;
+	}
+
+	@Test
+	public void matchesLegacyReplaceSymbol() {
+		String[] samples = { "output_yyyyMMdd.csv", "log/javautil-yyyy-MM-dd.log", "yyMMdd", "yy/mm", "MM-dd",
+				"HH:mm:ss.SSS", "yyyyMMddHHmmss", "hhmm", "backup_$yesterday.zip", "$today-$tomorrow",
+				"report_$lastmonth_$nextmonth", "YYYY.MM.DD hh:mm", "plain text", "", "$todayyyymmdd",
+				"summary_yyyymm_$today_HHmmssSSS.txt", "yyyyyyyymmdd", "mmddmmdd" };
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(2020, Calendar.JANUARY, 31, 23, 59, 58);
+		calendar.set(Calendar.MILLISECOND, 7);
+		Date[] dates = { calendar.getTime(), new Date(), new Date(0) };
+		for (String sample : samples) {
+			for (Date date : dates) {
+				assertEquals(sample, legacyReplaceSymbol(sample, date), Dates.replaceSymbol(sample, date));
+			}
+		}
+	}
+
+	@Test
+	public void dateOnlyTemplateIsMemoizedPerDay() {
+		DateTemplate template = DateTemplate.compile("output_yyyyMMdd.csv");
+		assertTrue(template.isDateOnly());
+		assertFalse(DateTemplate.compile("yyyyMMdd_HHmm").isDateOnly());
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(2020, Calendar.MARCH, 1, 8, 0, 0);
+		String morning = template.format(calendar.getTime());
+		calendar.set(Calendar.HOUR_OF_DAY, 20);
+		assertSame(morning, template.format(calendar.getTime()));
+		assertEquals("output_20200301.csv", morning);
+		calendar.add(Calendar.DATE, 1);
+		assertEquals("output_20200302.csv", template.format(calendar.getTime()));
+	}
+}
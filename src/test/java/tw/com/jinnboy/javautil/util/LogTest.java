@@ -0,0 +1,49 @@
+package tw.com.jinnboy.javautil.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import tw.com.jinnboy.javautil.util.Log.Logger;
+import tw.com.jinnboy.javautil.util.log.AsyncAppender.FullPolicy;
+
+public class LogTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static boolean isAlive(String threadName) {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals(threadName) && thread.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String read(String path) throws Exception {
+		return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void closeStopsTheAsyncWriter() throws Exception {
+		String path = folder.getRoot().getAbsolutePath() + "/async-test.log";
+		String threadName = "Log-" + Paths.getSimpleName(path);
+		Logger logger = new Logger(path);
+		logger.setAsync(64, FullPolicy.BLOCK, 1);
+		assertTrue(isAlive(threadName));
+		logger.info("hello {}", "async");
+		logger.close();
+		assertFalse(isAlive(threadName));
+		assertTrue(read(path).contains("hello async"));
+
+		logger.info("after {}", "close"); // 關閉後改成同步寫出
+		logger.close();
+		assertTrue(read(path).contains("after close"));
+	}
+}
@@ -0,0 +1,91 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import tw.com.jinnboy.javautil.util.Args;
+
+public class ArgSchemaTest {
+
+	static class Options {
+		@AutoBind(alias = "so", required = true, description = "輸出檔案")
+		String schemaOutput;
+		@AutoBind(defaultValue = "100")
+		int schemaBatch;
+		@AutoBind
+		boolean schemaVerbose;
+		@AutoBind
+		Long schemaLimit;
+
+		private String schemaMode = "fast";
+
+		@AutoBind(alias = "m")
+		String schemaModeSetter;
+
+		public void setSchemaModeSetter(String schemaModeSetter) {
+			this.schemaModeSetter = schemaModeSetter.toUpperCase();
+		}
+	}
+
+	static class Broken {
+		@AutoBind(required = true)
+		String brokenName;
+		@AutoBind
+		int brokenCount;
+		@AutoBind
+		String brokenPath;
+	}
+
+	@Test
+	public void parsesAliasesFlagsAndDefaults() {
+		Options options = Args.load(new String[] { "-so", "out.csv", "-schemaVerbose", "-m", "slow" }, new Options());
+		assertEquals("out.csv", options.schemaOutput);
+		assertEquals(100, options.schemaBatch);
+		assertTrue(options.schemaVerbose);
+		assertNull(options.schemaLimit);
+		assertEquals("SLOW", options.schemaModeSetter);
+		assertEquals("fast", options.schemaMode);
+		assertEquals("out.csv", Args.get("so")); // 原本的Args.get()也拿得到
+	}
+
+	@Test
+	public void reportsAllErrorsWithoutTouchingTarget() {
+		Broken broken = new Broken();
+		broken.brokenCount = 7;
+		try {
+			ArgSchema.of(Broken.class).parse(new String[] { "stray", "-brokenCount", "abc" }, broken);
+			fail();
+		} catch (BindException e) {
+			assertEquals(Arrays.asList("unexpected argument 'stray'", "-brokenName is required",
+					"-brokenCount has invalid int value 'abc'"), e.getErrors());
+		}
+		assertEquals(7, broken.brokenCount);
+		assertNull(broken.brokenPath);
+		assertEquals("", Args.get("brokenCount")); // 有錯誤時Args也不會留下參數
+	}
+
+	@Test
+	public void optionWithoutValueIsAnError() {
+		try {
+			ArgSchema.of(Options.class).parse(new String[] { "-schemaOutput", "x", "-schemaLimit" }, new Options());
+			fail();
+		} catch (BindException e) {
+			assertEquals(Arrays.asList("-schemaLimit requires a value"), e.getErrors());
+		}
+	}
+
+	@Test
+	public void usageListsSchema() {
+		String usage = ArgSchema.of(Options.class).usage();
+		assertTrue(usage.contains("-schemaOutput, -so <String>  輸出檔案 (required)"));
+		assertTrue(usage.contains("-schemaBatch <int> (default: 100)"));
+		assertFalse(usage.contains("-schemaVerbose <"));
+	}
+}
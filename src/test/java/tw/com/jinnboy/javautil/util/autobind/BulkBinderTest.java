@@ -0,0 +1,60 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class BulkBinderTest {
+
+	static class Person {
+		@AutoBind
+		String name;
+		@AutoBind(alias = "years")
+		int age;
+		@AutoBind
+		String city;
+	}
+
+	@Test
+	public void bindsRowsByColumnInOrder() {
+		BulkBinder<Person> binder = BulkBinder.of(Person.class, "id", "years", "name", "age");
+		List<String[]> rows = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			rows.add(new String[] { String.valueOf(i), String.valueOf(i % 100), "P" + i, "" });
+		}
+		rows.add(new String[] { "x", "", "short", "7" });
+		rows.add(new String[] { "y" });
+
+		List<Person> persons = binder.bindAll(rows.stream());
+		assertEquals(rows.size(), persons.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals("P" + i, persons.get(i).name);
+			assertEquals(i % 100, persons.get(i).age);
+		}
+		assertEquals(7, persons.get(10000).age); // years沒有值時用age的欄位
+		assertNull(persons.get(10001).name);
+		assertEquals(persons.size(), binder.bindAll(rows.iterator()).size());
+	}
+
+	@Test
+	public void bindsMaps() {
+		List<Map<String, String>> records = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Map<String, String> record = new HashMap<>();
+			record.put("name", "Person" + i);
+			record.put("years", String.valueOf(i));
+			records.add(record);
+		}
+		List<Person> persons = BulkBinder.bindMaps(Person.class, records.stream());
+		assertEquals("Person42", persons.get(42).name);
+		assertEquals(42, persons.get(42).age);
+		assertNull(BulkBinder.bindMaps(Person.class, Stream.of(new HashMap<String, String>())).get(0).city);
+	}
+}
@@ -0,0 +1,150 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ConvertersTest {
+
+	enum Level {
+		LOW, HIGH
+	}
+
+	static class Job {
+		@AutoBind
+		LocalDate date;
+		@AutoBind
+		BigDecimal amount;
+		@AutoBind
+		Level level;
+		@AutoBind
+		List<Integer> ids;
+		@AutoBind
+		Set<String> tags;
+		@AutoBind
+		int[] sizes;
+	}
+
+	static class Money {
+		final long cents;
+
+		Money(long cents) {
+			this.cents = cents;
+		}
+	}
+
+	static class Wallet {
+		@AutoBind
+		Money balance;
+	}
+
+	static class Counter {
+		@AutoBind
+		int count;
+		@AutoBind
+		long total;
+	}
+
+	static class PrivateCounter {
+		@AutoBind
+		private int count;
+	}
+
+	@Test
+	public void convertsBuiltInTypes() throws Exception {
+		assertEquals(Integer.valueOf(12), Converters.find(String.class, int.class).convert(" 12"));
+		assertEquals(LocalDate.of(2020, 1, 2), Converters.find(String.class, LocalDate.class).convert("2020-01-02"));
+		assertEquals(new BigDecimal("1.50"), Converters.find(String.class, BigDecimal.class).convert("1.50"));
+		assertSame(Level.HIGH, Converters.find(String.class, Level.class).convert("high"));
+		assertEquals(Long.valueOf(3), Converters.find(Integer.class, Long.class).convert(3));
+		assertNull(Converters.find(String.class, String.class).convert("null"));
+		assertNull(Converters.find(String.class, Map.class));
+		assertSame(Converters.find(String.class, long.class), Converters.find(String.class, long.class));
+	}
+
+	@Test
+	public void failuresAreReported() throws Exception {
+		try {
+			Converters.find(String.class, Level.class).convert("middle");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("middle is not one of [LOW, HIGH]", e.getMessage());
+		}
+		// boolean和原本的Reflect.convert()相同，不是1或true就是false
+		assertEquals(Boolean.TRUE, Converters.find(String.class, boolean.class).convert("TRUE"));
+		assertEquals(Boolean.FALSE, Converters.find(String.class, boolean.class).convert("2"));
+		assertEquals(Boolean.FALSE, Converters.find(String.class, boolean.class).convert("maybe"));
+		assertEquals("abc", Reflect.convert("abc", int.class)); // Reflect.convert()維持轉換失敗時傳回原本的值
+	}
+
+	@Test
+	public void bindsCollectionsEnumsAndRegisteredTypes() {
+		Map<String, String> map = new HashMap<>();
+		map.put("date", "2020/01/02");
+		map.put("amount", "99.90");
+		map.put("level", "LOW");
+		map.put("ids", "3, 1, 2");
+		map.put("tags", "b,a,b");
+		map.put("sizes", "1,2");
+		Job job = new Job();
+		Reflect.autoBind(map, job);
+		assertEquals(LocalDate.of(2020, 1, 2), job.date);
+		assertEquals(new BigDecimal("99.90"), job.amount);
+		assertSame(Level.LOW, job.level);
+		assertEquals(Arrays.asList(3, 1, 2), job.ids);
+		assertEquals(Arrays.asList("b", "a"), Arrays.asList(job.tags.toArray()));
+		assertArrayEquals(new int[] { 1, 2 }, job.sizes);
+	}
+
+	@Test
+	public void registeredTypesAreBound() {
+		Converters.register(String.class, Money.class, new Converter<String, Money>() {
+			@Override
+			public Money convert(String value) {
+				return new Money(new BigDecimal(value.trim()).movePointRight(2).longValueExact());
+			}
+		});
+		Wallet wallet = new Wallet();
+		Reflect.autoBind(Collections.singletonMap("balance", "12.34"), wallet);
+		assertEquals(1234, wallet.balance.cents);
+	}
+
+	@Test
+	public void registeredIntegerConverterAppliesToIntFields() {
+		assertTrue(Converters.isBuiltIn(String.class, int.class));
+		// 只是多接受千分位，其他測試的結果不受影響
+		Converters.register(String.class, Integer.class, new Converter<String, Integer>() {
+			@Override
+			public Integer convert(String value) {
+				return Integer.parseInt(value.trim().replace(",", ""));
+			}
+		});
+		assertFalse(Converters.isBuiltIn(String.class, int.class));
+		assertTrue(Converters.isBuiltIn(String.class, long.class));
+		Map<String, String> map = new HashMap<>();
+		map.put("count", "1,234");
+		map.put("total", "5");
+		Counter counter = new Counter(); // 有編譯時產生的AutoBinder
+		Reflect.autoBind(map, counter);
+		assertEquals(1234, counter.count);
+		assertEquals(5L, counter.total);
+		PrivateCounter privateCounter = new PrivateCounter(); // 使用BindField
+		Reflect.autoBind(map, privateCounter);
+		assertEquals(1234, privateCounter.count);
+	}
+}
@@ -0,0 +1,91 @@
+package tw.com.jinnboy.javautil.util.autobind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ReflectTest {
+
+	static class Person {
+		@AutoBind
+		String name;
+		@AutoBind(alias = "years")
+		int age;
+		@AutoBind
+		private String city;
+
+		void setCity(String city) {
+			this.city = "City:" + city;
+		}
+	}
+
+	static class Student extends Person {
+		@AutoBind
+		long grade;
+	}
+
+	static class Counter {
+		@AutoBind
+		private int count;
+		@AutoBind
+		final String label = "none";
+		@AutoBind
+		double ratio;
+
+		private Counter setCount(int count) {
+			this.count = count * 2;
+			return this;
+		}
+	}
+
+	@Test
+	public void settersCoverPrivateFluentAndFinalTargets() {
+		Map<String, String> map = new HashMap<>();
+		map.put("count", "21");
+		map.put("label", "x");
+		map.put("ratio", "0.5");
+		Counter counter = new Counter();
+		Reflect.autoBind(map, counter);
+		assertEquals(42, counter.count);
+		assertEquals(0.5, counter.ratio, 0);
+
+		map.put("count", "abc"); // 格式錯誤時印出錯誤，保留原本的值
+		Reflect.autoBind(map, counter);
+		assertEquals(42, counter.count);
+	}
+
+	@Test
+	public void autoBindUsesSettersAliasesAndSuperclassFields() {
+		Map<String, String> map = new HashMap<>();
+		map.put("name", "Jason");
+		map.put("years", "18");
+		map.put("city", "Taipei");
+		map.put("grade", "3");
+		Student student = new Student();
+		Reflect.autoBind(map, student);
+		assertEquals("Jason", student.name);
+		assertEquals(18, student.age);
+		assertEquals("City:Taipei", ((Person) student).city);
+		assertEquals(3L, student.grade);
+	}
+
+	@Test
+	public void planIsBuiltOncePerClass() {
+		BindingPlan plan = BindingPlan.of(Student.class);
+		assertSame(plan, BindingPlan.of(Student.class));
+		assertEquals(4, plan.fields().length);
+		assertSame(ArgSchema.of(Student.class), ArgSchema.of(Student.class));
+	}
+
+	@Test
+	public void generatedBinderIsUsedWhenAccessible() {
+		assertNotNull(BindingPlan.of(Student.class).binder); // 編譯測試時由AutoBindProcessor產生
+		assertNull(BindingPlan.of(Counter.class).binder); // private setter，改用反射
+	}
+}
@@ -0,0 +1,107 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigCacheTest {
+	private Path folder;
+	private Path cfg;
+
+	@Before
+	public void setUp() throws IOException {
+		folder = Files.createTempDirectory("config-cache");
+		cfg = folder.resolve("project.cfg");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(ConfigCache.cachePath(cfg));
+		Files.deleteIfExists(cfg);
+		Files.deleteIfExists(folder);
+	}
+
+	private void writeCfg(String text) throws IOException {
+		Files.write(cfg, text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private ConfigSnapshot openCache() throws IOException {
+		byte[] data = Files.readAllBytes(cfg);
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		return ConfigCache.open(cfg, ConfigCache.cachePath(cfg), data.length,
+				Files.getLastModifiedTime(cfg).toMillis(), crc.getValue());
+	}
+
+	@Test
+	public void cachedSnapshotMatchesParsed() throws IOException {
+		StringBuilder sb = new StringBuilder("Global=g\nnote\n[中文]\nname=值\n[Empty]\n");
+		for (int i = 0; i < 500; i++) {
+			sb.append("[Entity").append(i).append("]\nname=entity ").append(i).append("\nline ").append(i).append('\n');
+		}
+		writeCfg(sb.toString());
+		ConfigSnapshot parsed = ConfigCache.load(cfg);
+		assertTrue(Files.exists(ConfigCache.cachePath(cfg)));
+
+		ConfigSnapshot cached = openCache();
+		assertNotNull(cached);
+		assertEquals(parsed.getSections(), cached.getSections());
+		assertTrue(ConfigSnapshot.diff(parsed, cached).isEmpty());
+		assertEquals("值", cached.get("中文", "name").toString());
+		assertEquals("entity 42", cached.get("entity42", "name").toString());
+		assertEquals("g", cached.view("Entity7").get("Global", null));
+		assertEquals(Arrays.asList("note"), cached.getOtherLines(""));
+		assertEquals(Arrays.asList("line 3"), cached.getOtherLines("entity3"));
+		assertTrue(cached.containSection("empty"));
+		assertFalse(cached.containSection("missing"));
+		assertNull(cached.get("entity3", "missing"));
+		assertNull(cached.get("missing", "name"));
+		assertTrue(cached.getSection("missing").isEmpty());
+	}
+
+	@Test
+	public void changedCfgInvalidatesCache() throws IOException {
+		writeCfg("param=1\n");
+		FileTime time = Files.getLastModifiedTime(cfg);
+		ConfigCache.load(cfg);
+		assertNotNull(openCache());
+
+		// 大小和修改時間都相同，只有內容不同
+		writeCfg("param=2\n");
+		Files.setLastModifiedTime(cfg, time);
+		assertNull(openCache());
+		assertEquals("2", ConfigCache.load(cfg).get("", "param").toString());
+		assertEquals("2", openCache().get("", "param").toString());
+	}
+
+	@Test
+	public void corruptCacheIsIgnored() throws IOException {
+		writeCfg("[Section]\nparam=value\n");
+		ConfigCache.load(cfg);
+		Path cachePath = ConfigCache.cachePath(cfg);
+		byte[] cache = Files.readAllBytes(cachePath);
+		cache[cache.length - 1] ^= 0x55; // header正確，只有字串表損毀
+		Files.write(cachePath, cache);
+		assertNull(openCache());
+		assertEquals("value", ConfigCache.load(cfg).get("section", "param").toString());
+		assertNotNull(openCache());
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.tmp")) {
+			assertFalse(stream.iterator().hasNext()); // 暫存檔已換成快取
+		}
+	}
+}
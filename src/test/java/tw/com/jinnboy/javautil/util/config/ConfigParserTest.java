@@ -0,0 +1,105 @@
+package tw.com.jinnboy.javautil.util.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import tw.com.jinnboy.javautil.util.Config;
+
+public class ConfigParserTest {
+
+	private static ConfigSnapshot parse(String text) throws IOException {
+		return ConfigParser.parse(null, text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void parsesLinesLikeBefore() throws IOException {
+		ConfigSnapshot snapshot = parse("﻿Global1 = XXX \r\n# comment\r\n  \r\n=novalue\r\nbad-key=1\r\n"
+				+ "[CategoryA]\r\nparam1=a=b\r\nparam2=中文\r\nempty=\r\nThis is an apple\r\n[]\r\nglobal2=YYY\r\n"
+				+ "[categorya]\rparam1=override");
+		assertEquals("XXX", snapshot.get("", "Global1").toString());
+		assertEquals("YYY", snapshot.get("", "global2").toString());
+		assertEquals(Arrays.asList("=novalue", "bad-key=1"), snapshot.getOtherLines(""));
+		assertEquals("override", snapshot.get("categorya", "param1").toString());
+		assertEquals("中文", snapshot.get("categorya", "param2").toString());
+		assertEquals("", snapshot.get("categorya", "empty").toString());
+		assertEquals(Arrays.asList("This is an apple"), snapshot.getOtherLines("categorya"));
+		assertNull(snapshot.get("categorya", "Global1"));
+	}
+
+	@Test
+	public void parallelParseMatchesReadLine() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Global=g\n");
+		for (int i = 0; i < 20000; i++) {
+			sb.append("[Entity").append(i).append("]\n");
+			sb.append("name=entity ").append(i).append('\n');
+			sb.append("value=").append(i * 7).append('\n');
+			sb.append("note line ").append(i).append('\n');
+			if (i % 1000 == 0) {
+				sb.append("[Entity0]\nvalue=last").append(i).append('\n');
+			}
+		}
+		String text = sb.toString();
+		assertTrue(text.length() > 512 * 1024);
+		ConfigSnapshot snapshot = parse(text);
+
+		// 用原本BufferedReader.readLine()的解析方式比對結果
+		ConfigSnapshot.Builder expected = new ConfigSnapshot.Builder(null);
+		try (BufferedReader br = new BufferedReader(new StringReader(text))) {
+			String section = "";
+			String line;
+			while ((line = br.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.charAt(0) == '#') {
+					continue;
+				}
+				if (line.charAt(0) == '[' && line.charAt(line.length() - 1) == ']') {
+					section = line.substring(1, line.length() - 1);
+					expected.section(section);
+					continue;
+				}
+				int i = line.indexOf('=');
+				if (i > 0 && Config.isValidParam(line.substring(0, i).trim())) {
+					expected.put(section, line.substring(0, i).trim(), line.substring(i + 1).trim());
+					continue;
+				}
+				expected.addOtherLine(section, line);
+			}
+		}
+		ConfigSnapshot legacy = expected.build();
+		assertEquals(legacy.getSections(), snapshot.getSections());
+		for (String section : legacy.getSections()) {
+			Map<String, Object> params = snapshot.getSection(section);
+			assertEquals(legacy.getSection(section).size(), params.size());
+			for (Map.Entry<String, Object> entry : legacy.getSection(section).entrySet()) {
+				assertEquals(entry.getValue(), params.get(entry.getKey()).toString());
+			}
+			assertEquals(legacy.getOtherLines(section), snapshot.getOtherLines(section));
+		}
+		assertTrue(ConfigSnapshot.diff(legacy, snapshot).isEmpty());
+		assertEquals("last19000", snapshot.get("entity0", "value").toString());
+	}
+
+	@Test
+	public void internsParamNames() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 30000; i++) {
+			sb.append("[S").append(i).append("]\nparam=").append(i).append('\n');
+		}
+		ConfigSnapshot snapshot = parse(sb.toString());
+		String first = snapshot.getSection("s0").keySet().iterator().next();
+		String last = snapshot.getSection("s29999").keySet().iterator().next();
+		assertSame(first, last);
+	}
+}
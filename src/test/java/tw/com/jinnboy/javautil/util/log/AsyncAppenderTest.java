@@ -0,0 +1,177 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.After;
+import org.junit.Test;
+
+import tw.com.jinnboy.javautil.util.log.AsyncAppender.FullPolicy;
+
+public class AsyncAppenderTest {
+
+	// 第一筆log會卡在write()直到release，用來讓capacity為2的buffer塞滿
+	private static class BlockingSink implements LogSink {
+		final List<String> messages = new CopyOnWriteArrayList<>();
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public void write(LogEvent event) {
+			entered.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			messages.add(event.getMessage());
+		}
+
+		@Override
+		public void flush() {
+		}
+	}
+
+	private AsyncAppender appender;
+
+	@After
+	public void tearDown() {
+		if (appender != null) {
+			appender.close();
+		}
+	}
+
+	private BlockingSink fill(FullPolicy fullPolicy, int sampleRate) throws InterruptedException {
+		BlockingSink sink = new BlockingSink();
+		appender = new AsyncAppender("AsyncAppenderTest", sink, 2, fullPolicy, sampleRate);
+		assertEquals(2, appender.getCapacity());
+		assertTrue(appender.publish(1, 'I', null, "m1"));
+		assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+		assertTrue(appender.publish(2, 'I', null, "m2")); // m1還沒寫完不會釋放slot，buffer已滿
+		return sink;
+	}
+
+	private Thread publishLater(final String message, final char level) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				appender.publish(4, level, null, message);
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	@Test
+	public void blockWaitsForSpace() throws Exception {
+		BlockingSink sink = fill(FullPolicy.BLOCK, 1);
+		Thread thread = publishLater("m3", 'I');
+		thread.join(200);
+		assertTrue(thread.isAlive());
+		sink.release.countDown();
+		thread.join(5000);
+		assertFalse(thread.isAlive());
+		appender.close();
+		assertEquals(Arrays.asList("m1", "m2", "m3"), sink.messages);
+	}
+
+	@Test
+	public void dropDiscardsAndReportsTheCount() throws Exception {
+		BlockingSink sink = fill(FullPolicy.DROP, 1);
+		assertFalse(appender.publish(3, 'I', null, "m3"));
+		assertFalse(appender.publish(4, 'W', null, "m4"));
+		Thread error = publishLater("e1", 'E'); // error不論哪種策略都會等待
+		error.join(200);
+		assertTrue(error.isAlive());
+		sink.release.countDown();
+		error.join(5000);
+		appender.close();
+		assertEquals(4, sink.messages.size());
+		assertEquals(Arrays.asList("m1", "m2"), sink.messages.subList(0, 2));
+		assertTrue(sink.messages.contains("e1"));
+		assertTrue(sink.messages.contains("Log buffer is full, 2 log events were dropped."));
+	}
+
+	@Test
+	public void sampleKeepsEveryNthEvent() throws Exception {
+		BlockingSink sink = fill(FullPolicy.SAMPLE, 2);
+		assertFalse(appender.publish(3, 'I', null, "m3"));
+		Thread kept = publishLater("m4", 'I');
+		kept.join(200);
+		assertTrue(kept.isAlive());
+		sink.release.countDown();
+		kept.join(5000);
+		appender.close();
+		assertTrue(sink.messages.contains("m4"));
+		assertFalse(sink.messages.contains("m3"));
+		assertTrue(sink.messages.contains("Log buffer is full, 1 log events were dropped."));
+	}
+
+	@Test
+	public void closeFlushesPendingEvents() {
+		final List<String> messages = new CopyOnWriteArrayList<>();
+		appender = new AsyncAppender("AsyncAppenderTest", new LogSink() {
+			@Override
+			public void write(LogEvent event) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+				messages.add(event.getMessage());
+			}
+
+			@Override
+			public void flush() {
+			}
+		}, 256, FullPolicy.BLOCK, 1);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(appender.publish(i, 'I', null, "m" + i));
+		}
+		appender.close();
+		assertFalse(appender.isRunning());
+		assertEquals(100, messages.size());
+		assertEquals("m99", messages.get(99));
+		assertFalse(appender.publish(100, 'I', null, "late"));
+	}
+
+	@Test
+	public void closeKeepsEveryAcceptedEvent() throws Exception {
+		final List<String> messages = new CopyOnWriteArrayList<>();
+		appender = new AsyncAppender("AsyncAppenderTest", new LogSink() {
+			@Override
+			public void write(LogEvent event) {
+				messages.add(event.getMessage());
+			}
+
+			@Override
+			public void flush() {
+			}
+		}, 64, FullPolicy.BLOCK, 1);
+		final AtomicInteger accepted = new AtomicInteger();
+		Thread[] producers = new Thread[4];
+		for (int i = 0; i < producers.length; i++) {
+			producers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (appender.publish(0, 'I', null, "m")) {
+						accepted.incrementAndGet();
+					}
+				}
+			});
+			producers[i].start();
+		}
+		Thread.sleep(50);
+		appender.close(); // 和正在publish()的執行緒同時發生
+		for (Thread producer : producers) {
+			producer.join(5000);
+			assertFalse(producer.isAlive());
+		}
+		assertEquals(accepted.get(), messages.size()); // 回傳true的log都有寫出
+	}
+}
@@ -0,0 +1,102 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class LogDecoderTest {
+	private static final String MESSAGE = "中文 \"quoted\" back\\slash\r\n\tnext line \u0001";
+
+	// 把多筆log接成一個檔案的內容，最後補上mmap預先配置的0
+	private static ByteBuffer file(LogLayout layout) {
+		ByteBuffer file = ByteBuffer.allocate(4096);
+		LogFormatter formatter = LogFormatter.get();
+		file.put(formatter.format(layout, 1648627200123L, 'I', "App-main", MESSAGE));
+		file.put(formatter.format(layout, -1L, 'E', null, null));
+		file.put(formatter.format(layout, 0L, 'D', "", ""));
+		file.put(new byte[64]);
+		file.flip();
+		return file;
+	}
+
+	private static void assertRoundTrip(LogLayout layout) {
+		ByteBuffer buf = file(layout);
+		assertSame(layout, LogDecoder.detect(buf));
+		LogEvent event = new LogEvent();
+		assertTrue(LogDecoder.decode(layout, buf, event));
+		assertEquals(1648627200123L, event.getTime());
+		assertEquals('I', event.getLevel());
+		assertEquals("App-main", event.getClassMethod());
+		assertEquals(MESSAGE, event.getMessage());
+		assertTrue(LogDecoder.decode(layout, buf, event));
+		assertEquals(-1L, event.getTime());
+		assertEquals('E', event.getLevel());
+		assertNull(event.getClassMethod());
+		assertEquals("null", event.getMessage());
+		assertTrue(LogDecoder.decode(layout, buf, event));
+		assertEquals('D', event.getLevel());
+		assertEquals("", event.getMessage());
+		int position = buf.position();
+		assertFalse(LogDecoder.decode(layout, buf, event)); // 預先配置還沒寫入的0
+		assertEquals(position, buf.position());
+	}
+
+	@Test
+	public void jsonRoundTrip() {
+		assertRoundTrip(LogLayout.JSON);
+	}
+
+	@Test
+	public void binaryRoundTrip() {
+		assertRoundTrip(LogLayout.BINARY);
+	}
+
+	@Test
+	public void textIsDetected() {
+		ByteBuffer buf = file(LogLayout.TEXT);
+		assertSame(LogLayout.TEXT, LogDecoder.detect(buf));
+	}
+
+	@Test
+	public void incompleteRecordsWaitForMoreData() {
+		ByteBuffer record = LogFormatter.get().formatBinary(1L, 'W', "A-b", "message");
+		ByteBuffer partial = ByteBuffer.allocate(record.remaining() - 1);
+		record.limit(record.limit() - 1);
+		partial.put(record).flip();
+		assertFalse(LogDecoder.decodeBinary(partial, new LogEvent()));
+		assertEquals(0, partial.position());
+
+		ByteBuffer json = LogFormatter.get().formatJson(1L, 'W', "A-b", "message");
+		json.limit(json.limit() - 1); // 還沒寫到換行
+		assertFalse(LogDecoder.decodeJson(json, new LogEvent()));
+	}
+
+	@Test
+	public void rejectsCorruptBinaryRecords() {
+		// 長度13比最小的record(時間、level、兩個長度欄位共17 bytes)還短
+		ByteBuffer buf = ByteBuffer.allocate(32);
+		buf.putInt(13).putLong(1L).put((byte) 'I').putInt(-1).flip();
+		try {
+			LogDecoder.decodeBinary(buf, new LogEvent());
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("length 13"));
+		}
+		// message長度超出record
+		buf = ByteBuffer.allocate(32);
+		buf.putInt(17).putLong(1L).put((byte) 'I').putInt(-1).putInt(100).flip();
+		try {
+			LogDecoder.decodeBinary(buf, new LogEvent());
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().startsWith("Invalid binary log record"));
+		}
+	}
+}
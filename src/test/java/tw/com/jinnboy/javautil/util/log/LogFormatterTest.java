@@ -0,0 +1,46 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class LogFormatterTest {
+
+	private static String text(ByteBuffer buf) {
+		byte[] bytes = new byte[buf.remaining()];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String time(long time) {
+		return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(time));
+	}
+
+	@Test
+	public void formatsTextLines() {
+		long time = 1648627200123L;
+		LogFormatter formatter = LogFormatter.get();
+		assertEquals("[" + time(time) + "] I App-main: 中文 message\r\n",
+				text(formatter.format(time, 'I', "App-main", "中文 message")));
+		assertEquals("[" + time(time) + "] W: null\r\n", text(formatter.format(time, 'W', null, null)));
+		// 秒數改變時重新計算時間前綴
+		long next = time + 61000;
+		assertEquals("[" + time(next) + "] E: x\r\n", text(formatter.format(LogLayout.TEXT, next, 'E', "", "x")));
+	}
+
+	@Test
+	public void growsForLongMessages() {
+		char[] chars = new char[100000];
+		Arrays.fill(chars, '長');
+		String message = new String(chars);
+		String line = text(LogFormatter.get().format(0, 'I', null, message));
+		assertEquals("[" + time(0) + "] I: " + message + "\r\n", line);
+		assertEquals("[" + time(0) + "] I: short\r\n", text(LogFormatter.get().format(0, 'I', null, "short")));
+	}
+}
@@ -0,0 +1,116 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Calendar;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogRollerTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String dir;
+	private long time;
+
+	@Before
+	public void setUp() {
+		dir = folder.getRoot().getAbsolutePath();
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(2022, Calendar.MARCH, 30, 12, 0, 0);
+		time = calendar.getTimeInMillis();
+	}
+
+	private static void write(Path path, int size) throws Exception {
+		byte[] bytes = new byte[size];
+		for (int i = 0; i < size; i++) {
+			bytes[i] = (byte) ('a' + i % 26);
+		}
+		Files.write(path, bytes);
+	}
+
+	// 壓縮和刪除由背景執行緒處理，等到條件成立或逾時
+	private static boolean await(Path path, boolean exists) throws InterruptedException {
+		for (int i = 0; i < 500 && Files.exists(path) != exists; i++) {
+			Thread.sleep(10);
+		}
+		return Files.exists(path) == exists;
+	}
+
+	@Test
+	public void numbersFilesOfTheSameDay() throws Exception {
+		LogRoller roller = new LogRoller(dir, "app-yyyy-MM-dd.log", 10, false, 0);
+		Path base = roller.basePath(time);
+		assertEquals("app-2022-03-30.log", base.getFileName().toString());
+		assertEquals(base, roller.currentPath(base));
+
+		write(base, 20); // 超過maxFileSize
+		Path second = roller.currentPath(base);
+		assertEquals("app-2022-03-30(2).log", second.getFileName().toString());
+		write(second, 5); // 還沒超過，重新啟動時接著寫
+		assertEquals(second, roller.currentPath(base));
+		assertEquals("app-2022-03-30(3).log", roller.nextPath(base).getFileName().toString());
+
+		try (ChannelLogOutput output = new ChannelLogOutput(second)) {
+			assertFalse(roller.shouldRoll(output));
+			output.write(ByteBuffer.wrap(new byte[5]));
+			assertTrue(roller.shouldRoll(output));
+		}
+	}
+
+	@Test
+	public void compressesClosedFiles() throws Exception {
+		LogRoller roller = new LogRoller(dir, "app-yyyy-MM-dd.log", 10, true, 0);
+		Path base = roller.basePath(time);
+		Files.write(base, "closed log\r\n".getBytes(StandardCharsets.UTF_8));
+		Path gz = base.resolveSibling(base.getFileName() + ".gz");
+		roller.closed(base, roller.nextPath(base));
+		assertTrue(await(gz, true));
+		assertTrue(await(base, false));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+			byte[] buffer = new byte[1024];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+		}
+		assertEquals("closed log\r\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+		// 已壓縮的編號也算用過
+		assertEquals("app-2022-03-30(2).log", roller.nextPath(base).getFileName().toString());
+	}
+
+	@Test
+	public void deletesOldestFilesOverMaxTotalSize() throws Exception {
+		LogRoller roller = new LogRoller(dir, "app-yyyy-MM-dd.log", 0, false, 250);
+		Path oldest = folder.getRoot().toPath().resolve("app-2022-03-28.log");
+		Path older = folder.getRoot().toPath().resolve("app-2022-03-29.log.gz");
+		Path active = roller.basePath(time);
+		Path other = folder.getRoot().toPath().resolve("other-2022-03-27.log");
+		long now = System.currentTimeMillis();
+		Path[] paths = { other, oldest, older, active };
+		for (int i = 0; i < paths.length; i++) {
+			write(paths[i], 100);
+			Files.setLastModifiedTime(paths[i], FileTime.fromMillis(now - (paths.length - i) * 60000L));
+		}
+		roller.closed(older, active);
+		assertTrue(await(oldest, false));
+		assertTrue(Files.exists(older));
+		assertTrue(Files.exists(active));
+		assertTrue(Files.exists(other)); // 不是這個logPath產生的檔案
+	}
+}
@@ -0,0 +1,168 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import tw.com.jinnboy.javautil.util.Config;
+import tw.com.jinnboy.javautil.util.Log.Logger;
+import tw.com.jinnboy.javautil.util.log.LogRouter.RouteBy;
+
+public class LogRouterTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Logger defaultLogger;
+	private LogRouter router;
+
+	@Before
+	public void setUp() {
+		defaultLogger = new Logger(path("default.log"));
+	}
+
+	@After
+	public void tearDown() {
+		if (router != null) {
+			router.close();
+		}
+		defaultLogger.close();
+	}
+
+	private String path(String name) {
+		return folder.getRoot().toPath().resolve(name).toString();
+	}
+
+	private String read(String name) throws Exception {
+		Path path = folder.getRoot().toPath().resolve(name);
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void routesByCategory() throws Exception {
+		router = new LogRouter(path("app-{key}.log"), RouteBy.CATEGORY, defaultLogger);
+		String previous = Config.getCategory();
+		try {
+			Config.setCategory(null);
+			assertSame(defaultLogger, router.get());
+			Config.setCategory("RouterA");
+			Logger a = router.get();
+			assertSame(a, router.get("RouterA"));
+			a.info("to {}", "a");
+			Config.setCategory("RouterB");
+			assertNotSame(a, router.get());
+			assertEquals(2, router.size());
+		} finally {
+			Config.setCategory(previous);
+		}
+		router.close();
+		assertTrue(read("app-RouterA.log").contains("to a"));
+	}
+
+	@Test
+	public void routesByTask() throws Exception {
+		router = new LogRouter(path("app.log"), RouteBy.TASK, defaultLogger);
+		assertSame(defaultLogger, router.get());
+		router.setTask("job:1");
+		Logger job = router.get();
+		assertNotSame(defaultLogger, job);
+		job.info("inside job");
+		router.runTask("other", new Runnable() {
+			@Override
+			public void run() {
+				router.get().info("inside other");
+			}
+		});
+		assertSame(job, router.get());
+		router.setTask(null);
+		assertSame(defaultLogger, router.get());
+		router.close();
+		assertTrue(read("app-other.log").contains("inside other"));
+		assertTrue(read("app-job_1.log").contains("inside job")); // 檔名不能用的字元換成_
+	}
+
+	@Test
+	public void closeReleasesTheLoggerForEveryThread() throws Exception {
+		router = new LogRouter(path("app-{key}.log"), RouteBy.TASK, defaultLogger);
+		router.setTask("shared");
+		final AtomicReference<Logger> fromOtherThread = new AtomicReference<>();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				router.setTask("shared");
+				fromOtherThread.set(router.get());
+			}
+		});
+		thread.start();
+		thread.join();
+		Logger before = router.get();
+		assertSame(before, fromOtherThread.get());
+
+		router.close("shared");
+		assertEquals(0, router.size());
+		Logger after = router.get(); // 其他執行緒只記得task名稱，重新建立新的Logger
+		assertNotSame(before, after);
+		assertEquals(1, router.size());
+	}
+
+	@Test
+	public void evictsTheLeastRecentlyUsedLogger() throws Exception {
+		router = new LogRouter(path("app-{key}.log"), RouteBy.THREAD, defaultLogger, 2);
+		Logger first = router.get("t1");
+		Logger second = router.get("t2");
+		assertSame(first, router.get("t1")); // t2變成最久沒用
+		Logger third = router.get("t3");
+		assertEquals(2, router.size());
+		assertSame(first, router.get("t1"));
+		assertSame(second, router.get("t2")); // 還沒關閉，拿回原本的Logger，改成移除t3
+		assertEquals(2, router.size());
+		assertSame(third, router.get("t3"));
+		assertSame(router.get(Thread.currentThread().getName()), router.get());
+	}
+
+	@Test
+	public void evictedLoggerKeepsWriting() throws Exception {
+		router = new LogRouter(path("app-{key}.log"), RouteBy.THREAD, defaultLogger, 1);
+		Logger first = router.get("t1");
+		router.get("t2");
+		assertEquals(1, router.size());
+		first.info("after evict"); // 其他執行緒在移除前取得的Logger
+		Thread.sleep(LogRouter.CLOSE_DELAY_MILLIS + 50);
+		router.get("t3"); // t1在這裡才關閉
+		first.info("after close"); // 改成同步寫檔
+		router.close();
+		first.close();
+		String log = read("app-t1.log");
+		assertTrue(log.contains("after evict"));
+		assertTrue(log.contains("after close"));
+	}
+
+	@Test
+	public void checksLevelBeforeRouting() {
+		router = new LogRouter(path("app-{key}.log"), RouteBy.TASK, defaultLogger);
+		String previous = Config.getCategory();
+		try {
+			Config.setCategory("RouterLevel");
+			LogThreshold.of("RouterLevel").set(LogLevel.WARN);
+			assertFalse(router.isEnabled(LogLevel.INFO));
+			assertTrue(router.isEnabled(LogLevel.ERROR));
+			Config.setCategory("RouterOther");
+			assertTrue(router.isEnabled(LogLevel.INFO));
+			assertEquals(0, router.size());
+		} finally {
+			Config.setCategory(previous);
+		}
+	}
+}
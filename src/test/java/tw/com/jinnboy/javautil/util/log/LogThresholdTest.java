@@ -0,0 +1,68 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import tw.com.jinnboy.javautil.util.Log;
+import tw.com.jinnboy.javautil.util.Log.Logger;
+
+public class LogThresholdTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void parsesLevels() {
+		assertSame(LogLevel.WARN, LogLevel.of('w'));
+		assertSame(LogLevel.INFO, LogLevel.of('?'));
+		assertSame(LogLevel.DEBUG, LogLevel.of("debug", LogLevel.INFO));
+		assertSame(LogLevel.WARN, LogLevel.of("Warning", LogLevel.INFO));
+		assertSame(LogLevel.TRACE, LogLevel.of(" T ", LogLevel.INFO));
+		assertSame(LogLevel.ERROR, LogLevel.of("", LogLevel.ERROR));
+	}
+
+	@Test
+	public void loggersOfOneCategoryShareTheThreshold() throws Exception {
+		String category = "ThresholdTest";
+		assertSame(LogThreshold.of(category), LogThreshold.of("thresholdtest"));
+		Path path1 = folder.getRoot().toPath().resolve("threshold1.log");
+		Path path2 = folder.getRoot().toPath().resolve("threshold2.log");
+		Logger logger1 = new Logger(path1.toString(), category);
+		Logger logger2 = new Logger(path2.toString(), category);
+		Logger other = new Logger(folder.getRoot().toPath().resolve("other.log").toString(), "ThresholdOther");
+		try {
+			assertEquals(LogLevel.INFO, logger2.getLevel());
+			assertFalse(logger2.isEnabled(LogLevel.DEBUG));
+
+			logger1.setLevel('W');
+			assertFalse(logger2.isEnabled(LogLevel.INFO));
+			assertTrue(logger2.isEnabled('E'));
+			assertTrue(other.isEnabled(LogLevel.INFO));
+			logger2.info("skipped {}", 1);
+			logger2.warning("written {}", 2);
+
+			Log.setLevel(category, LogLevel.TRACE);
+			assertEquals(LogLevel.TRACE, logger1.getLevel());
+			logger2.trace("trace {}", 3);
+			logger2.close();
+			String text = new String(Files.readAllBytes(path2), StandardCharsets.UTF_8);
+			assertFalse(text.contains("skipped"));
+			assertTrue(text.contains("written 2"));
+			assertTrue(text.contains("trace 3"));
+		} finally {
+			LogThreshold.of(category).set(LogLevel.INFO);
+			logger1.close();
+			logger2.close();
+			other.close();
+		}
+	}
+}
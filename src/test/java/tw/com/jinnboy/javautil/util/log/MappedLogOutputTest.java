@@ -0,0 +1,103 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedLogOutputTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static ByteBuffer bytes(String str) {
+		return ByteBuffer.wrap(str.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(Path path) throws Exception {
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void closeTruncatesToTheWrittenLength() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("mapped.log");
+		MappedLogOutput output = new MappedLogOutput(path, 4096);
+		assertTrue(output.write(bytes("line1\r\n")));
+		assertTrue(output.write(bytes("中文\r\n")));
+		assertEquals(4096 + MappedLogOutput.TRAILER_LENGTH, Files.size(path)); // 開檔時預先配置整個segment
+		assertEquals(15, output.size());
+		output.close();
+		assertEquals(15, Files.size(path));
+		assertEquals("line1\r\n中文\r\n", read(path));
+
+		// 同一個檔案再開啟時接在後面寫
+		output = new MappedLogOutput(path, 4096);
+		assertTrue(output.write(bytes("line3\r\n")));
+		output.close();
+		assertEquals("line1\r\n中文\r\nline3\r\n", read(path));
+	}
+
+	@Test
+	public void reportsAFullSegment() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("full.log");
+		MappedLogOutput output = new MappedLogOutput(path, 8);
+		assertTrue(output.write(bytes("12345")));
+		assertFalse(output.write(bytes("6789")));
+		output.close();
+		assertEquals("12345", read(path));
+
+		// 單行比segment還大時，這個segment只放這一行
+		path = folder.getRoot().toPath().resolve("large.log");
+		output = new MappedLogOutput(path, 8);
+		assertTrue(output.write(bytes("0123456789")));
+		output.close();
+		assertEquals("0123456789", read(path));
+	}
+
+	@Test
+	public void skipsTheUnusedTailOfAnUnclosedFile() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("crashed.log");
+		MappedLogOutput output = new MappedLogOutput(folder.getRoot().toPath().resolve("running.log"), 4096);
+		assertTrue(output.write(bytes("before crash\r\n")));
+		Files.write(path, Files.readAllBytes(output.getPath())); // 還沒close()時的檔案內容
+		output.close();
+		output = new MappedLogOutput(path, 4096);
+		assertEquals(14, output.size());
+		assertTrue(output.write(bytes("after\r\n")));
+		output.close();
+		assertEquals("before crash\r\nafter\r\n", read(path));
+	}
+
+	@Test
+	public void keepsBinaryRecordsEndingWithZeros() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("binary.log");
+		LogFormatter formatter = LogFormatter.get();
+		MappedLogOutput output = new MappedLogOutput(path, 4096);
+		assertTrue(output.write(formatter.formatBinary(1000L, 'I', null, ""))); // 以長度0結尾
+		output.close();
+
+		output = new MappedLogOutput(path, 4096);
+		assertTrue(output.write(formatter.formatBinary(2000L, 'W', null, "")));
+		Path crashed = folder.getRoot().toPath().resolve("binary-crashed.log");
+		Files.write(crashed, Files.readAllBytes(path));
+		output.close();
+		output = new MappedLogOutput(crashed, 4096);
+		assertTrue(output.write(formatter.formatBinary(3000L, 'E', "A-b", "x")));
+		output.close();
+
+		List<LogEvent> events = LogDecoder.readAll(crashed);
+		assertEquals(3, events.size());
+		assertEquals("", events.get(0).getMessage());
+		assertEquals('W', events.get(1).getLevel());
+		assertEquals("", events.get(1).getMessage());
+		assertEquals("x", events.get(2).getMessage());
+	}
+}
@@ -0,0 +1,30 @@
+package tw.com.jinnboy.javautil.util.log;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MessageFormatterTest {
+
+	@Test
+	public void replacesPlaceholdersInOrder() {
+		assertEquals("a=1", MessageFormatter.format("a={}", 1));
+		assertEquals("a=1, b=2, c={}", MessageFormatter.format("a={}, b={}, c={}", 1, 2));
+		assertEquals("a=1, b=null", MessageFormatter.format("a={}, b={}", 1, null));
+		assertEquals("a=1, b=2, c=3", MessageFormatter.format("a={}, b={}, c={}", 1, 2, 3));
+	}
+
+	@Test
+	public void arraysReplacePlaceholdersToo() {
+		assertEquals("1 2 3 4", MessageFormatter.format("{} {} {} {}", 1, 2, 3, 4));
+		Object[] args = { "x", "y" };
+		assertEquals("x-y", MessageFormatter.format("{}-{}", args));
+		assertEquals("no args", MessageFormatter.format("no args", new Object[0]));
+	}
+
+	@Test
+	public void fallsBackToStringFormatWithoutPlaceholders() {
+		assertEquals("a=1", MessageFormatter.format("a=%s", 1));
+		assertEquals("1 2 3 4", MessageFormatter.format("%s %s %s %s", 1, 2, 3, 4));
+	}
+}